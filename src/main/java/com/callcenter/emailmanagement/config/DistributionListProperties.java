@@ -0,0 +1,66 @@
+package com.callcenter.emailmanagement.config;
+
+import com.callcenter.emailmanagement.domain.model.WorkQueueType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binds {@code app.email.distribution-lists}. Mail addressed to a list is routed
+ * straight to its queue type. A list given its own username and password is
+ * also read as a separate mailbox by its own worker; otherwise its mail is
+ * expected in the main account's INBOX.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.email")
+public class DistributionListProperties {
+    
+    private List<DistributionList> distributionLists = new ArrayList<>();
+    
+    public List<DistributionList> getDistributionLists() { return distributionLists; }
+    public void setDistributionLists(List<DistributionList> distributionLists) { this.distributionLists = distributionLists; }
+    
+    public static class DistributionList {
+        private String name;
+        private String address;
+        private WorkQueueType queueType;
+        // Set username and password to read the list as its own mailbox; the rest
+        // fall back to the app.email account settings
+        private String host;
+        private Integer port;
+        private String username;
+        private String password;
+        private String folder = "INBOX";
+        private Long pollIntervalMs;
+        
+        // Getters and Setters
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        
+        public String getAddress() { return address; }
+        public void setAddress(String address) { this.address = address; }
+        
+        public WorkQueueType getQueueType() { return queueType; }
+        public void setQueueType(WorkQueueType queueType) { this.queueType = queueType; }
+        
+        public String getHost() { return host; }
+        public void setHost(String host) { this.host = host; }
+        
+        public Integer getPort() { return port; }
+        public void setPort(Integer port) { this.port = port; }
+        
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+        
+        public String getPassword() { return password; }
+        public void setPassword(String password) { this.password = password; }
+        
+        public String getFolder() { return folder; }
+        public void setFolder(String folder) { this.folder = folder; }
+        
+        public Long getPollIntervalMs() { return pollIntervalMs; }
+        public void setPollIntervalMs(Long pollIntervalMs) { this.pollIntervalMs = pollIntervalMs; }
+    }
+}
@@ -0,0 +1,63 @@
+package com.callcenter.emailmanagement.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binds {@code app.priority}: how much each priority factor adds to a queue
+ * item's base score.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.priority")
+public class PriorityScoringProperties {
+
+    private int waitingPointsPerHour = 5;
+    private int waitingMaxPoints = 60;
+    private int slaMaxPoints = 80;
+    private int slaWarningMinutes = 480;
+    private int slaStepMinutes = 30;
+    private int reopenPoints = 15;
+    private int reopenMaxPoints = 45;
+    private Map<String, CustomerTier> tiers = new LinkedHashMap<>();
+
+    public int getWaitingPointsPerHour() { return waitingPointsPerHour; }
+    public void setWaitingPointsPerHour(int waitingPointsPerHour) { this.waitingPointsPerHour = waitingPointsPerHour; }
+
+    public int getWaitingMaxPoints() { return waitingMaxPoints; }
+    public void setWaitingMaxPoints(int waitingMaxPoints) { this.waitingMaxPoints = waitingMaxPoints; }
+
+    public int getSlaMaxPoints() { return slaMaxPoints; }
+    public void setSlaMaxPoints(int slaMaxPoints) { this.slaMaxPoints = slaMaxPoints; }
+
+    public int getSlaWarningMinutes() { return slaWarningMinutes; }
+    public void setSlaWarningMinutes(int slaWarningMinutes) { this.slaWarningMinutes = slaWarningMinutes; }
+
+    public int getSlaStepMinutes() { return slaStepMinutes; }
+    public void setSlaStepMinutes(int slaStepMinutes) { this.slaStepMinutes = slaStepMinutes; }
+
+    public int getReopenPoints() { return reopenPoints; }
+    public void setReopenPoints(int reopenPoints) { this.reopenPoints = reopenPoints; }
+
+    public int getReopenMaxPoints() { return reopenMaxPoints; }
+    public void setReopenMaxPoints(int reopenMaxPoints) { this.reopenMaxPoints = reopenMaxPoints; }
+
+    public Map<String, CustomerTier> getTiers() { return tiers; }
+    public void setTiers(Map<String, CustomerTier> tiers) { this.tiers = tiers; }
+
+    public static class CustomerTier {
+        private int points;
+        // Full addresses, or "@domain.com" for everyone at a domain
+        private List<String> customers = new ArrayList<>();
+
+        public int getPoints() { return points; }
+        public void setPoints(int points) { this.points = points; }
+
+        public List<String> getCustomers() { return customers; }
+        public void setCustomers(List<String> customers) { this.customers = customers; }
+    }
+}
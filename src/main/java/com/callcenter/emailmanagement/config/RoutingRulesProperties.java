@@ -0,0 +1,39 @@
+package com.callcenter.emailmanagement.config;
+
+import com.callcenter.emailmanagement.domain.model.WorkQueueType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binds {@code app.routing}: the keywords that route an email to each queue and
+ * how subject and body matches are weighted.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.routing")
+public class RoutingRulesProperties {
+
+    private WorkQueueType defaultQueue = WorkQueueType.GENERAL_INQUIRY;
+    private int subjectWeight = 3;
+    private int bodyWeight = 1;
+    private int minScore = 2;
+    private Map<WorkQueueType, List<String>> rules = new EnumMap<>(WorkQueueType.class);
+
+    public WorkQueueType getDefaultQueue() { return defaultQueue; }
+    public void setDefaultQueue(WorkQueueType defaultQueue) { this.defaultQueue = defaultQueue; }
+
+    public int getSubjectWeight() { return subjectWeight; }
+    public void setSubjectWeight(int subjectWeight) { this.subjectWeight = subjectWeight; }
+
+    public int getBodyWeight() { return bodyWeight; }
+    public void setBodyWeight(int bodyWeight) { this.bodyWeight = bodyWeight; }
+
+    public int getMinScore() { return minScore; }
+    public void setMinScore(int minScore) { this.minScore = minScore; }
+
+    public Map<WorkQueueType, List<String>> getRules() { return rules; }
+    public void setRules(Map<WorkQueueType, List<String>> rules) { this.rules = rules; }
+}
@@ -4,8 +4,11 @@ import com.callcenter.emailmanagement.domain.model.*;
 import com.callcenter.emailmanagement.service.*;
 import com.callcenter.emailmanagement.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,7 +34,10 @@ public class AgentController {
     private SlaTrackingService slaTrackingService;
     
     @Autowired
-    private OutlookEmailService outlookEmailService;
+    private AgentNotificationHub agentNotificationHub;
+    
+    @Autowired
+    private AgentAvailabilityIndex agentAvailabilityIndex;
     
     @Autowired
     private AgentRepository agentRepository;
@@ -69,6 +75,29 @@ public class AgentController {
                       .orElse(ResponseEntity.noContent().build());
     }
     
+    /**
+     * Server-Sent Events stream of new-case, assignment and sla-warning events for
+     * the agent. Clients reconnect when the stream ends.
+     */
+    @GetMapping(value = "/{agentId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEvents(@PathVariable String agentId) {
+        // No query here: with open-in-view, a connection taken by this request would be
+        // held for as long as the stream stays open
+        Optional<AgentAvailabilityIndex.AgentSlot> agent = agentAvailabilityIndex.find(agentId);
+        if (agent.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        return agentNotificationHub.subscribe(agent.get().getId(), agentId)
+                                   .map(ResponseEntity::ok)
+                                   .orElse(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+    
+    @GetMapping("/notifications")
+    public ResponseEntity<AgentNotificationHub.NotificationMetrics> getNotificationMetrics() {
+        return ResponseEntity.ok(agentNotificationHub.getMetrics());
+    }
+    
     @GetMapping("/{agentId}/cases")
     public ResponseEntity<List<Case>> getAgentCases(@PathVariable String agentId) {
         // TODO: Implement agent lookup
@@ -97,33 +126,20 @@ public class AgentController {
             
             // Create response email
             Email responseEmail = new Email();
-            responseEmail.setMessageId("RESPONSE-" + System.currentTimeMillis());
             responseEmail.setFromAddress(agent.get().getEmail());
             responseEmail.setToAddress(emailResponse.getToAddress());
             responseEmail.setSubject(emailResponse.getSubject());
             responseEmail.setTextContent(emailResponse.getContent());
             responseEmail.setDirection(Email.EmailDirection.OUTBOUND);
             responseEmail.setPriority(emailResponse.getPriority());
-            responseEmail.setEmailCase(emailCase);
-            
-            // Send email
-            outlookEmailService.sendEmail(responseEmail);
-            
-            // Save response email
-            emailRepository.save(responseEmail);
-            emailCase.addEmail(responseEmail);
             
-            // Update case status
-            emailCase.setStatus(Case.CaseStatus.IN_PROGRESS);
-            caseRepository.save(emailCase);
+            // Outbox insert, case status and first-response time commit together
+            caseManagementService.respondToCase(emailCase, responseEmail);
             
-            // Mark first response in SLA tracking
-            slaTrackingService.markFirstResponse(emailCase);
-            
-            return ResponseEntity.ok("✅ Response sent successfully");
+            return ResponseEntity.accepted().body("📨 Response queued for delivery");
             
         } catch (Exception e) {
-            return ResponseEntity.internalServerError().body("❌ Error sending response: " + e.getMessage());
+            return ResponseEntity.internalServerError().body("❌ Error queueing response: " + e.getMessage());
         }
     }
     
@@ -141,6 +157,28 @@ public class AgentController {
         return ResponseEntity.ok("Case resolved successfully");
     }
     
+    @PostMapping("/{agentId}/cases/{caseNumber}/reopen")
+    public ResponseEntity<String> reopenCase(
+            @PathVariable String agentId,
+            @PathVariable String caseNumber) {
+        
+        Optional<Case> caseOpt = caseRepository.findByCaseNumber(caseNumber);
+        if (agentRepository.findByAgentId(agentId).isEmpty() || caseOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        Case.CaseStatus status = caseOpt.get().getStatus();
+        if (status != Case.CaseStatus.RESOLVED && status != Case.CaseStatus.CLOSED) {
+            return ResponseEntity.badRequest().body("❌ Case " + caseNumber + " is still open");
+        }
+        if (caseOpt.get().getArchivedDate() != null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("❌ Case " + caseNumber + " is archived and cannot be reopened");
+        }
+        
+        Case reopened = caseManagementService.reopenCase(caseOpt.get());
+        return ResponseEntity.ok("🔄 Case reopened (" + reopened.getReopenCount() + " times) and queued");
+    }
+    
     @GetMapping("/{agentId}/workload")
     public ResponseEntity<AgentWorkload> getAgentWorkload(@PathVariable String agentId) {
         // TODO: Implement agent lookup
@@ -152,8 +190,8 @@ public class AgentController {
     }
     
     @GetMapping("/available")
-    public ResponseEntity<List<Agent>> getAvailableAgents(@RequestParam WorkQueueType queueType) {
-        List<Agent> availableAgents = workQueueService.getAvailableAgents(queueType);
+    public ResponseEntity<List<AgentAvailabilityIndex.AgentSlot>> getAvailableAgents(@RequestParam WorkQueueType queueType) {
+        List<AgentAvailabilityIndex.AgentSlot> availableAgents = workQueueService.getAvailableAgents(queueType);
         
         return ResponseEntity.ok(availableAgents);
     }
@@ -0,0 +1,80 @@
+package com.callcenter.emailmanagement.controller;
+
+import com.callcenter.emailmanagement.service.AttachmentStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/attachments")
+@CrossOrigin(origins = "*")
+public class AttachmentController {
+
+    // Tomcat request attributes for handing a file to the kernel's sendfile
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private AttachmentStore attachmentStore;
+
+    /**
+     * Streams a stored attachment without copying it through the JVM heap: Tomcat
+     * sends the file with sendfile when the connector supports it, otherwise the
+     * file channel transfers straight to the response channel.
+     */
+    @GetMapping("/{hash:[0-9a-f]{64}}")
+    public void download(@PathVariable String hash,
+                         @RequestParam(required = false) String name,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+
+        Optional<AttachmentStore.StoredBlob> blob = attachmentStore.open(hash);
+        if (blob.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        AttachmentStore.StoredBlob stored = blob.get();
+        response.setContentType(stored.getContentType() != null ? stored.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(stored.getSize());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+            .filename(name != null && !name.isBlank() ? name : hash, StandardCharsets.UTF_8).build().toString());
+        // Content never changes for a given hash
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=31536000, immutable");
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, stored.getPath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, stored.getSize());
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(stored.getPath(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < stored.getSize()) {
+                position += channel.transferTo(position, stored.getSize() - position, out);
+            }
+        }
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<AttachmentStore.AttachmentStoreMetrics> getMetrics() {
+        return ResponseEntity.ok(attachmentStore.getMetrics());
+    }
+}
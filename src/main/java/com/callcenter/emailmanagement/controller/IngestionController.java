@@ -0,0 +1,50 @@
+package com.callcenter.emailmanagement.controller;
+
+import com.callcenter.emailmanagement.service.EmailBurstDetector;
+import com.callcenter.emailmanagement.service.EmailPollingService;
+import com.callcenter.emailmanagement.service.EmailProcessingPipeline;
+import com.callcenter.emailmanagement.service.MailboxIngestionWorker;
+import com.callcenter.emailmanagement.service.QueueAdmissionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/ingestion")
+@CrossOrigin(origins = "*")
+public class IngestionController {
+    
+    @Autowired
+    private EmailProcessingPipeline emailProcessingPipeline;
+    
+    @Autowired
+    private EmailPollingService emailPollingService;
+    
+    @Autowired
+    private QueueAdmissionService queueAdmissionService;
+    
+    @Autowired
+    private EmailBurstDetector emailBurstDetector;
+    
+    @GetMapping("/pipeline")
+    public ResponseEntity<EmailProcessingPipeline.PipelineMetrics> getPipelineMetrics() {
+        return ResponseEntity.ok(emailProcessingPipeline.getMetrics());
+    }
+    
+    @GetMapping("/mailboxes")
+    public ResponseEntity<List<MailboxIngestionWorker.MailboxStatus>> getMailboxes() {
+        return ResponseEntity.ok(emailPollingService.getMailboxStatuses());
+    }
+    
+    @GetMapping("/admission")
+    public ResponseEntity<QueueAdmissionService.AdmissionMetrics> getAdmission() {
+        return ResponseEntity.ok(queueAdmissionService.getMetrics());
+    }
+    
+    @GetMapping("/bursts")
+    public ResponseEntity<EmailBurstDetector.BurstMetrics> getBursts() {
+        return ResponseEntity.ok(emailBurstDetector.getMetrics());
+    }
+}
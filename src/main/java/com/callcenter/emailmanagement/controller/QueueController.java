@@ -1,6 +1,9 @@
 package com.callcenter.emailmanagement.controller;
 
 import com.callcenter.emailmanagement.domain.model.WorkQueueType;
+import com.callcenter.emailmanagement.service.AssignmentDispatcher;
+import com.callcenter.emailmanagement.service.PriorityScoringEngine;
+import com.callcenter.emailmanagement.service.QueueDispatcher;
 import com.callcenter.emailmanagement.service.WorkQueueService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -14,6 +17,15 @@ public class QueueController {
     @Autowired
     private WorkQueueService workQueueService;
     
+    @Autowired
+    private PriorityScoringEngine priorityScoringEngine;
+    
+    @Autowired
+    private QueueDispatcher queueDispatcher;
+    
+    @Autowired
+    private AssignmentDispatcher assignmentDispatcher;
+    
     @GetMapping("/{queueType}/depth")
     public ResponseEntity<Integer> getQueueDepth(@PathVariable WorkQueueType queueType) {
         int depth = workQueueService.getQueueDepth(queueType);
@@ -33,6 +45,21 @@ public class QueueController {
         return ResponseEntity.ok(waitTime);
     }
     
+    @GetMapping("/scoring")
+    public ResponseEntity<PriorityScoringEngine.ScoringMetrics> getScoringMetrics() {
+        return ResponseEntity.ok(priorityScoringEngine.getMetrics());
+    }
+    
+    @GetMapping("/dispatcher")
+    public ResponseEntity<QueueDispatcher.DispatcherMetrics> getDispatcherMetrics() {
+        return ResponseEntity.ok(queueDispatcher.getMetrics());
+    }
+    
+    @GetMapping("/assignments")
+    public ResponseEntity<AssignmentDispatcher.AssignmentMetrics> getAssignmentMetrics() {
+        return ResponseEntity.ok(assignmentDispatcher.getMetrics());
+    }
+    
     @PostMapping("/redistribute")
     public ResponseEntity<String> redistributeCases() {
         workQueueService.redistributeUnassignedCases();
@@ -0,0 +1,44 @@
+package com.callcenter.emailmanagement.controller;
+
+import com.callcenter.emailmanagement.service.SearchIndexService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/search")
+@CrossOrigin(origins = "*")
+public class SearchController {
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    /**
+     * Full-text search over cases and emails. {@code q} takes words, "quoted
+     * phrases", prefix* and -exclusions; all words must match. {@code kind} limits
+     * hits to {@code case} or {@code email}; {@code sort=newest} orders by date
+     * instead of relevance.
+     */
+    @GetMapping
+    public ResponseEntity<SearchIndexService.SearchResults> search(
+            @RequestParam String q,
+            @RequestParam(required = false) String kind,
+            @RequestParam(defaultValue = "relevance") String sort,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(searchIndexService.search(q, kind, "newest".equalsIgnoreCase(sort), page, size));
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<SearchIndexService.SearchMetrics> getMetrics() {
+        return ResponseEntity.ok(searchIndexService.getMetrics());
+    }
+
+    @PostMapping("/reindex")
+    public ResponseEntity<String> reindex() {
+        if (!searchIndexService.rebuild()) {
+            return ResponseEntity.badRequest().body("❌ Search index is disabled or already rebuilding");
+        }
+        return ResponseEntity.accepted().body("🔎 Search index rebuild started");
+    }
+}
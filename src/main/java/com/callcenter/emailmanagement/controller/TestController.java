@@ -3,13 +3,33 @@ package com.callcenter.emailmanagement.controller;
 import com.callcenter.emailmanagement.domain.model.*;
 import com.callcenter.emailmanagement.service.*;
 import com.callcenter.emailmanagement.repository.*;
+import jakarta.activation.DataHandler;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.util.ByteArrayDataSource;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.html.HTMLEditorKit;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
 
 @RestController
 @RequestMapping("/api/test")
@@ -29,11 +49,39 @@ public class TestController {
     @Autowired
     private WorkQueueService workQueueService;
     
+    @Autowired
+    private EmailProcessingPipeline emailProcessingPipeline;
+    
+    @Autowired
+    private MimeContentExtractor mimeContentExtractor;
+    
+    @Autowired
+    private AttachmentStore attachmentStore;
+    
+    @Autowired
+    private CaseRepository caseRepository;
+    
+    @Autowired
+    private EmailBodyRepository emailBodyRepository;
+    
+    @Autowired
+    private HtmlTextExtractor htmlTextExtractor;
+    
+    @Autowired
+    private SearchIndexService searchIndexService;
+    
+    @Autowired
+    private AgentNotificationHub agentNotificationHub;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
     @PostMapping("/simulate-email")
     public ResponseEntity<String> simulateIncomingEmail(
             @RequestParam(defaultValue = "test@customer.com") String fromEmail,
             @RequestParam(defaultValue = "Test Support Request") String subject,
-            @RequestParam(defaultValue = "I need help with my account") String content) {
+            @RequestParam(defaultValue = "I need help with my account") String content,
+            @RequestParam(defaultValue = "false") boolean html) {
         
         logger.info("🎬 Simulating incoming email from: {}", fromEmail);
         
@@ -44,7 +92,11 @@ public class TestController {
             testEmail.setFromAddress(fromEmail);
             testEmail.setToAddress("support@company.com");
             testEmail.setSubject(subject);
-            testEmail.setTextContent(content);
+            if (html) {
+                testEmail.setHtmlContent(content);
+            } else {
+                testEmail.setTextContent(content);
+            }
             testEmail.setDirection(Email.EmailDirection.INBOUND);
             testEmail.setPriority(Email.EmailPriority.NORMAL);
             testEmail.setReceivedDate(LocalDateTime.now());
@@ -65,6 +117,315 @@ public class TestController {
         }
     }
     
+    /**
+     * Pushes {@code count} synthetic emails through the ingestion pipeline and waits
+     * for them to settle, reporting end-to-end throughput. Raise
+     * {@code app.queue.max-queue-depth} first or most of a large run is deferred.
+     * With {@code repeats} above 1 each complaint is sent that many times in a row,
+     * as customers do, to exercise burst suppression.
+     */
+    @PostMapping("/simulate-bulk")
+    public ResponseEntity<String> simulateBulkEmails(
+            @RequestParam(defaultValue = "10000") int count,
+            @RequestParam(defaultValue = "500") int senders,
+            @RequestParam(defaultValue = "1") int repeats,
+            @RequestParam(defaultValue = "0") int bodyKb,
+            @RequestParam(defaultValue = "300") int timeoutSeconds) {
+        
+        logger.info("🎬 Simulating {} incoming emails from {} senders", count, senders);
+        
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        String quotedHistory = simulatedHistory(bodyKb);
+        EmailProcessingPipeline.PipelineMetrics before = emailProcessingPipeline.getMetrics();
+        long startNanos = System.nanoTime();
+        
+        try {
+            for (int i = 0; i < count; i++) {
+                Email email = new Email();
+                email.setMessageId("<BULK-" + runId + "-" + i + "@test.local>");
+                int complaint = i / Math.max(1, repeats);
+                email.setFromAddress("customer" + (complaint % senders) + "@test.com");
+                email.setToAddress("support@company.com");
+                email.setSubject(complaint % 3 == 0 ? "Question about my invoice #" + complaint : "Need help with my account #" + complaint);
+                email.setTextContent("Hello, this is simulated email " + i + ". Please get back to me." + quotedHistory);
+                email.setDirection(Email.EmailDirection.INBOUND);
+                email.setPriority(Email.EmailPriority.NORMAL);
+                email.setReceivedDate(LocalDateTime.now());
+                emailProcessingPipeline.submit(email);
+            }
+            
+            long deadline = System.currentTimeMillis() + timeoutSeconds * 1000L;
+            long settled = 0;
+            while (System.currentTimeMillis() < deadline) {
+                EmailProcessingPipeline.PipelineMetrics now = emailProcessingPipeline.getMetrics();
+                settled = (now.getProcessed() - before.getProcessed()) + (now.getFailed() - before.getFailed())
+                    + (now.getDeferred() - before.getDeferred());
+                if (settled >= count) {
+                    break;
+                }
+                Thread.sleep(50);
+            }
+            
+            long elapsedMillis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+            EmailProcessingPipeline.PipelineMetrics after = emailProcessingPipeline.getMetrics();
+            String result = String.format("✅ %d of %d emails settled in %d ms (%.0f emails/s) - processed: %d, suppressed: %d, deferred: %d, failed: %d",
+                settled, count, elapsedMillis, settled * 1000.0 / elapsedMillis,
+                after.getProcessed() - before.getProcessed(), after.getSuppressed() - before.getSuppressed(),
+                after.getDeferred() - before.getDeferred(), after.getFailed() - before.getFailed());
+            logger.info(result);
+            
+            return ResponseEntity.ok(result);
+            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.internalServerError().body("❌ Interrupted");
+        }
+    }
+    
+    /**
+     * Sends {@code count} MIME emails through extraction and the pipeline. Each
+     * carries the same signature image plus a document of its own, so the
+     * attachment store should write the image once and count the rest as duplicates.
+     */
+    @PostMapping("/simulate-attachments")
+    public ResponseEntity<AttachmentStore.AttachmentStoreMetrics> simulateAttachments(
+            @RequestParam(defaultValue = "20") int count) throws Exception {
+        
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        Session session = Session.getInstance(new Properties());
+        byte[] signature = new byte[64 * 1024];
+        Arrays.fill(signature, (byte) 7);
+        
+        for (int i = 0; i < count; i++) {
+            MimeBodyPart text = new MimeBodyPart();
+            text.setText("Please see the attached statement " + i, "UTF-8");
+            
+            MimeBodyPart image = new MimeBodyPart();
+            image.setDataHandler(new DataHandler(new ByteArrayDataSource(signature, "image/png")));
+            image.setFileName("signature.png");
+            
+            MimeBodyPart document = new MimeBodyPart();
+            document.setDataHandler(new DataHandler(new ByteArrayDataSource(
+                ("Statement " + runId + "-" + i).getBytes(StandardCharsets.UTF_8), "application/pdf")));
+            document.setFileName("statement-" + i + ".pdf");
+            
+            MimeMessage message = new MimeMessage(session);
+            message.setContent(new MimeMultipart(text, image, document));
+            message.saveChanges();
+            
+            Email email = new Email();
+            email.setMessageId("<ATTACH-" + runId + "-" + i + "@test.local>");
+            email.setFromAddress("attachments" + i + "@test.com");
+            email.setToAddress("support@company.com");
+            email.setSubject("Statement " + i);
+            email.setDirection(Email.EmailDirection.INBOUND);
+            email.setPriority(Email.EmailPriority.NORMAL);
+            email.setReceivedDate(LocalDateTime.now());
+            mimeContentExtractor.extract(message, email);
+            emailProcessingPipeline.submit(email);
+        }
+        
+        return ResponseEntity.ok(attachmentStore.getMetrics());
+    }
+    
+    /**
+     * Loads the emails of the latest {@code cases} cases twice: once the way case
+     * listings and routing do (bodies untouched) and once reading every body, and
+     * reports the body codec's on-disk savings. Seed with simulate-bulk first, e.g.
+     * {@code bodyKb=8} for realistic quoted-reply bodies.
+     */
+    @GetMapping("/body-storage")
+    @Transactional(readOnly = true)
+    public ResponseEntity<String> measureBodyStorage(@RequestParam(defaultValue = "500") int cases) {
+        List<Long> caseIds = caseRepository.findAll(PageRequest.of(0, cases, Sort.by(Sort.Direction.DESC, "id")))
+            .map(Case::getId).getContent();
+        
+        entityManager.clear();
+        long start = System.nanoTime();
+        int emails = 0;
+        for (Case listed : caseRepository.findAllById(caseIds)) {
+            for (Email email : listed.getEmails()) {
+                emails += email.getSubject() != null ? 1 : 0;
+            }
+        }
+        long listingMillis = (System.nanoTime() - start) / 1_000_000;
+        
+        entityManager.clear();
+        start = System.nanoTime();
+        long chars = 0;
+        for (Case listed : caseRepository.findAllById(caseIds)) {
+            for (Email email : listed.getEmails()) {
+                chars += email.getTextContent() != null ? email.getTextContent().length() : 0;
+                chars += email.getHtmlContent() != null ? email.getHtmlContent().length() : 0;
+            }
+        }
+        long bodiesMillis = (System.nanoTime() - start) / 1_000_000;
+        
+        Object[] storage = emailBodyRepository.summarize().get(0);
+        long raw = ((Number) storage[1]).longValue();
+        long stored = ((Number) storage[2]).longValue();
+        String result = String.format("📦 %d bodies: %d bytes raw, %d bytes stored (%.0f%%) - %d emails of %d cases listed in %d ms, %d ms reading every body (%d chars)",
+            ((Number) storage[0]).longValue(), raw, stored, raw > 0 ? stored * 100.0 / raw : 0.0,
+            emails, caseIds.size(), listingMillis, bodiesMillis, chars);
+        logger.info(result);
+        
+        return ResponseEntity.ok(result);
+    }
+    
+    private static String simulatedHistory(int kilobytes) {
+        StringBuilder history = new StringBuilder(kilobytes * 1024);
+        int reply = 0;
+        while (history.length() < kilobytes * 1024) {
+            history.append("\n\n> On Monday, customer service wrote (reply ").append(reply++).append("):\n")
+                .append("> Thank you for contacting support. We have received your request and a member\n")
+                .append("> of our team will get back to you within 24 hours. Your reference is below.\n");
+        }
+        return history.toString();
+    }
+    
+    /**
+     * Times the streaming {@link HtmlTextExtractor} against parsing the same
+     * marketing-style HTML into the JDK's HTML document model and reading its text,
+     * for both a description-sized and an unbounded extraction.
+     */
+    @GetMapping("/html-extraction")
+    public ResponseEntity<String> benchmarkHtmlExtraction(@RequestParam(defaultValue = "200") int kb,
+                                                          @RequestParam(defaultValue = "50") int iterations) throws IOException, BadLocationException {
+        String html = simulatedNewsletter(kb);
+        
+        // Warm up both paths before timing
+        for (int i = 0; i < 5; i++) {
+            htmlTextExtractor.extract(html, Integer.MAX_VALUE);
+            parseDocument(html);
+        }
+        
+        long start = System.nanoTime();
+        String description = null;
+        for (int i = 0; i < iterations; i++) {
+            description = htmlTextExtractor.extract(html, 501);
+        }
+        double descriptionMicros = (System.nanoTime() - start) / 1000.0 / iterations;
+        
+        start = System.nanoTime();
+        String streamed = null;
+        for (int i = 0; i < iterations; i++) {
+            streamed = htmlTextExtractor.extract(html, Integer.MAX_VALUE);
+        }
+        double streamedMicros = (System.nanoTime() - start) / 1000.0 / iterations;
+        
+        start = System.nanoTime();
+        String parsed = null;
+        for (int i = 0; i < iterations; i++) {
+            parsed = parseDocument(html);
+        }
+        double parsedMicros = (System.nanoTime() - start) / 1000.0 / iterations;
+        
+        String result = String.format("🧾 %d chars of HTML: streaming %.0f µs (%d chars out), first 500 chars %.0f µs, DOM parse %.0f µs (%d chars out)%nDescription: %s",
+            html.length(), streamedMicros, streamed.length(), descriptionMicros, parsedMicros, parsed.length(),
+            description.length() > 160 ? description.substring(0, 160) + "..." : description);
+        logger.info(result);
+        
+        return ResponseEntity.ok(result);
+    }
+    
+    /**
+     * Runs {@code queries} searches of the kinds agents type - a reference number,
+     * a customer, a phrase, a prefix - against cases seeded by simulate-bulk and
+     * reports the latency distribution.
+     */
+    @GetMapping("/search-latency")
+    public ResponseEntity<String> measureSearchLatency(@RequestParam(defaultValue = "500") int queries,
+                                                       @RequestParam(defaultValue = "10000") int seeded) {
+        java.util.Random random = new java.util.Random(42);
+        long[] micros = new long[queries];
+        long matched = 0;
+        
+        for (int i = 0; i < queries; i++) {
+            int n = random.nextInt(Math.max(1, seeded));
+            String query = switch (i % 4) {
+                case 0 -> "invoice " + n;
+                case 1 -> "customer" + (n % 500) + "@test.com";
+                case 2 -> "\"simulated email " + n + "\"";
+                default -> "acc* -invoice";
+            };
+            long start = System.nanoTime();
+            matched += searchIndexService.search(query, null, false, 0, 20).getTotal();
+            micros[i] = (System.nanoTime() - start) / 1000;
+        }
+        
+        Arrays.sort(micros);
+        SearchIndexService.SearchMetrics metrics = searchIndexService.getMetrics();
+        String result = String.format("🔎 %d searches over %d documents in %d segments: p50 %.2f ms, p99 %.2f ms, max %.2f ms (%d total hits)",
+            queries, metrics.getDocuments(), metrics.getSegments(), micros[queries / 2] / 1000.0,
+            micros[(int) Math.ceil(queries * 0.99) - 1] / 1000.0, micros[queries - 1] / 1000.0, matched);
+        logger.info(result);
+        
+        return ResponseEntity.ok(result);
+    }
+    
+    private static String parseDocument(String html) throws IOException, BadLocationException {
+        HTMLEditorKit kit = new HTMLEditorKit();
+        Document document = kit.createDefaultDocument();
+        document.putProperty("IgnoreCharsetDirective", Boolean.TRUE);
+        kit.read(new StringReader(html), document, 0);
+        return document.getText(0, document.getLength());
+    }
+    
+    private static String simulatedNewsletter(int kilobytes) {
+        StringBuilder html = new StringBuilder(kilobytes * 1024 + 2048);
+        html.append("<!DOCTYPE html><html><head><title>Your October picks</title><style type=\"text/css\">")
+            .append("body{margin:0;padding:0}.btn{background:#e4002b;color:#fff}@media (max-width:600px){.col{width:100%!important}}")
+            .append("</style><script>window.dataLayer=window.dataLayer||[];dataLayer.push({'event':'open'});</script></head>")
+            .append("<body style=\"margin:0\"><div style=\"font-family:Arial\">Hi team,<br><br>I was charged twice for my order ")
+            .append("after clicking the offer below &ndash; please refund the duplicate payment.<br><br>Thanks,<br>Dana</div>")
+            .append("<!-- preheader --><div style=\"display:none\">Don&#39;t miss out on this week&#8217;s deals</div>");
+        int item = 0;
+        while (html.length() < kilobytes * 1024) {
+            html.append("<table role=\"presentation\" width=\"100%\" cellpadding=\"0\" cellspacing=\"0\" border=\"0\"><tr>")
+                .append("<td class=\"col\" style=\"padding:12px 24px;font-family:Helvetica,Arial,sans-serif;font-size:14px;color:#333333\">")
+                .append("<a href=\"https://shop.example.com/p/").append(item).append("?utm_source=newsletter&amp;utm_medium=email\">")
+                .append("<img src=\"https://cdn.example.com/img/").append(item).append(".jpg\" width=\"260\" alt=\"Product ").append(item).append("\"></a></td>")
+                .append("<td class=\"col\" style=\"padding:12px 24px\"><h2 style=\"margin:0\">Deal #").append(item)
+                .append(" &mdash; save 30&percnt; today</h2><p>Limited stock&nbsp;&amp; free delivery over &pound;40.</p>")
+                .append("<a class=\"btn\" href=\"https://shop.example.com/buy/").append(item).append("\">Shop now &rsaquo;</a></td></tr></table>");
+            item++;
+        }
+        html.append("<p style=\"font-size:11px\">&copy; Example Retail Ltd. <a href=\"https://shop.example.com/unsubscribe\">Unsubscribe</a></p>")
+            .append("<img src=\"https://track.example.com/open.gif\" width=\"1\" height=\"1\"></body></html>");
+        return html.toString();
+    }
+    
+    /**
+     * Publishes {@code events} single-case new-case events to every agent, as fast
+     * as possible. Connected sessions should receive a handful of coalesced events,
+     * not one per publish.
+     */
+    @PostMapping("/notification-burst")
+    public ResponseEntity<String> notificationBurst(@RequestParam(defaultValue = "1000") int events,
+                                                    @RequestParam(defaultValue = "GENERAL_INQUIRY") WorkQueueType queueType) throws InterruptedException {
+        List<Agent> agents = agentRepository.findAll();
+        AgentNotificationHub.NotificationMetrics before = agentNotificationHub.getMetrics();
+        
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            for (Agent agent : agents) {
+                agentNotificationHub.newCases(agent.getId(), queueType, 1);
+            }
+        }
+        long publishMicros = Math.max(1, (System.nanoTime() - startNanos) / 1000);
+        
+        // Give the flusher time to write everything out
+        Thread.sleep(1000);
+        AgentNotificationHub.NotificationMetrics after = agentNotificationHub.getMetrics();
+        
+        String result = String.format("📡 Published %d events to %d agents in %d µs; %d sessions received %d events in %d flushes",
+            events * agents.size(), agents.size(), publishMicros, after.getSessions(),
+            after.getSent() - before.getSent(), after.getFlushes() - before.getFlushes());
+        logger.info(result);
+        
+        return ResponseEntity.ok(result);
+    }
+    
     @GetMapping("/agent-status")
     public ResponseEntity<String> getAgentStatus() {
         StringBuilder status = new StringBuilder();
@@ -27,6 +27,10 @@ public class Agent {
     @Enumerated(EnumType.STRING)
     private List<WorkQueueType> skillSets;
     
+    // One bit per WorkQueueType, kept in step with skillSets so skill checks never load the collection
+    @Column(nullable = false)
+    private long skillMask;
+    
     private LocalDateTime lastActiveTime;
     
     private Integer maxConcurrentCases = 5;
@@ -65,7 +69,16 @@ public class Agent {
     public void setStatus(AgentStatus status) { this.status = status; }
     
     public List<WorkQueueType> getSkillSets() { return skillSets; }
-    public void setSkillSets(List<WorkQueueType> skillSets) { this.skillSets = skillSets; }
+    public void setSkillSets(List<WorkQueueType> skillSets) {
+        this.skillSets = skillSets;
+        this.skillMask = WorkQueueType.mask(skillSets);
+    }
+    
+    public long getSkillMask() { return skillMask; }
+    
+    public boolean hasSkill(WorkQueueType queueType) {
+        return (skillMask & queueType.bit()) != 0;
+    }
     
     public LocalDateTime getLastActiveTime() { return lastActiveTime; }
     public void setLastActiveTime(LocalDateTime lastActiveTime) { this.lastActiveTime = lastActiveTime; }
@@ -0,0 +1,62 @@
+package com.callcenter.emailmanagement.domain.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One stored attachment file, keyed by the SHA-256 of its bytes. {@code refCount}
+ * is the number of persisted emails that reference it; a blob nobody references
+ * is removed by the attachment store's garbage collection.
+ */
+@Entity
+@Table(name = "attachment_blobs", indexes = {
+    @Index(name = "idx_attachment_blobs_unreferenced", columnList = "refCount, lastReleasedDate")
+})
+public class AttachmentBlob {
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false)
+    private Long size;
+
+    private String contentType;
+
+    @Column(nullable = false)
+    private Integer refCount = 0;
+
+    private LocalDateTime createdDate;
+
+    // Last time the count dropped (or, for a blob never referenced, when it was written)
+    private LocalDateTime lastReleasedDate;
+
+    // Constructors
+    public AttachmentBlob() {}
+
+    public AttachmentBlob(String hash, long size, String contentType) {
+        this.hash = hash;
+        this.size = size;
+        this.contentType = contentType;
+        this.createdDate = LocalDateTime.now();
+        this.lastReleasedDate = this.createdDate;
+    }
+
+    // Getters and Setters
+    public String getHash() { return hash; }
+    public void setHash(String hash) { this.hash = hash; }
+
+    public Long getSize() { return size; }
+    public void setSize(Long size) { this.size = size; }
+
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+
+    public Integer getRefCount() { return refCount; }
+    public void setRefCount(Integer refCount) { this.refCount = refCount; }
+
+    public LocalDateTime getCreatedDate() { return createdDate; }
+    public void setCreatedDate(LocalDateTime createdDate) { this.createdDate = createdDate; }
+
+    public LocalDateTime getLastReleasedDate() { return lastReleasedDate; }
+    public void setLastReleasedDate(LocalDateTime lastReleasedDate) { this.lastReleasedDate = lastReleasedDate; }
+}
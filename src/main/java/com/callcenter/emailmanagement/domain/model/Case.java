@@ -6,10 +6,14 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "cases")
+@Table(name = "cases", indexes = {
+    @Index(name = "idx_cases_customer_status", columnList = "customerEmail, status"),
+    @Index(name = "idx_cases_created", columnList = "createdDate")
+})
 public class Case {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "case_seq")
+    @SequenceGenerator(name = "case_seq", sequenceName = "case_seq", allocationSize = 50)
     private Long id;
     
     @Column(unique = true, nullable = false)
@@ -50,6 +54,10 @@ public class Case {
     private LocalDateTime lastModifiedDate;
     
     private LocalDateTime resolvedDate;
+    
+    private Integer reopenCount = 0;
+    
+    private LocalDateTime archivedDate;
 
     public enum CaseStatus {
         NEW, ASSIGNED, IN_PROGRESS, PENDING_CUSTOMER, RESOLVED, CLOSED
@@ -126,6 +134,12 @@ public class Case {
     public LocalDateTime getResolvedDate() { return resolvedDate; }
     public void setResolvedDate(LocalDateTime resolvedDate) { this.resolvedDate = resolvedDate; }
     
+    public LocalDateTime getArchivedDate() { return archivedDate; }
+    public void setArchivedDate(LocalDateTime archivedDate) { this.archivedDate = archivedDate; }
+    
+    public Integer getReopenCount() { return reopenCount; }
+    public void setReopenCount(Integer reopenCount) { this.reopenCount = reopenCount; }
+    
     public void addEmail(Email email) {
         emails.add(email);
         email.setEmailCase(this);
@@ -5,10 +5,14 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "emails")
+@Table(name = "emails", indexes = {
+    @Index(name = "idx_emails_deferred", columnList = "targetQueueType, deferredSince")
+})
 public class Email {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequence ids (pre-allocated in blocks) let Hibernate batch inserts; IDENTITY forces one round trip per row
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_seq")
+    @SequenceGenerator(name = "email_seq", sequenceName = "email_seq", allocationSize = 50)
     private Long id;
     
     @Column(unique = true, nullable = false)
@@ -26,11 +30,10 @@ public class Email {
     @ElementCollection
     private List<String> ccAddresses;
     
-    @Lob
-    private String htmlContent;
-    
-    @Lob
-    private String textContent;
+    // Bodies live in their own table and are only fetched when read
+    @OneToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "body_id")
+    private EmailBody body;
     
     @ElementCollection
     private List<String> attachmentUrls;
@@ -48,11 +51,47 @@ public class Email {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "case_id")
     private Case emailCase;
+    
+    @Enumerated(EnumType.STRING)
+    private DeliveryStatus deliveryStatus;
+    
+    private Integer deliveryAttempts = 0;
+    
+    private LocalDateTime nextDeliveryAttempt;
+    
+    @Column(length = 1000)
+    private String lastDeliveryError;
+    
+    // The sender that claimed this reply while it is SENDING, and until when; another
+    // node only takes it back once the lease has run out
+    @Column(length = 64)
+    private String deliveryOwner;
+    
+    private LocalDateTime deliveryLeaseExpires;
+    
+    // Set when the email arrived on a distribution list that maps to a queue,
+    // or when admission control deferred it for a queue that was full
+    @Enumerated(EnumType.STRING)
+    private WorkQueueType targetQueueType;
+    
+    // Non-null while the email waits for room in its queue; no case exists yet
+    private LocalDateTime deferredSince;
+    
+    @Column(length = 1000)
+    private String inReplyTo;
+    
+    // "references" is reserved in SQL
+    @Column(name = "reference_ids", length = 4000)
+    private String references;
 
     public enum EmailDirection {
         INBOUND, OUTBOUND
     }
     
+    public enum DeliveryStatus {
+        QUEUED, SENDING, SENT, FAILED
+    }
+    
     public enum EmailPriority {
         LOW, NORMAL, HIGH, URGENT
     }
@@ -73,6 +112,17 @@ public class Email {
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     
+    /**
+     * Forgets ids handed out by a persist that was rolled back, so the email and
+     * its body can be persisted again.
+     */
+    public void resetIds() {
+        this.id = null;
+        if (body != null) {
+            body.setId(null);
+        }
+    }
+    
     public String getMessageId() { return messageId; }
     public void setMessageId(String messageId) { this.messageId = messageId; }
     
@@ -88,11 +138,11 @@ public class Email {
     public List<String> getCcAddresses() { return ccAddresses; }
     public void setCcAddresses(List<String> ccAddresses) { this.ccAddresses = ccAddresses; }
     
-    public String getHtmlContent() { return htmlContent; }
-    public void setHtmlContent(String htmlContent) { this.htmlContent = htmlContent; }
+    public String getHtmlContent() { return body != null ? body.getHtmlContent() : null; }
+    public void setHtmlContent(String htmlContent) { body().setHtmlContent(htmlContent); }
     
-    public String getTextContent() { return textContent; }
-    public void setTextContent(String textContent) { this.textContent = textContent; }
+    public String getTextContent() { return body != null ? body.getTextContent() : null; }
+    public void setTextContent(String textContent) { body().setTextContent(textContent); }
     
     public List<String> getAttachmentUrls() { return attachmentUrls; }
     public void setAttachmentUrls(List<String> attachmentUrls) { this.attachmentUrls = attachmentUrls; }
@@ -111,4 +161,41 @@ public class Email {
     
     public Case getEmailCase() { return emailCase; }
     public void setEmailCase(Case emailCase) { this.emailCase = emailCase; }
-}
\ No newline at end of file
+    
+    public DeliveryStatus getDeliveryStatus() { return deliveryStatus; }
+    public void setDeliveryStatus(DeliveryStatus deliveryStatus) { this.deliveryStatus = deliveryStatus; }
+    
+    public Integer getDeliveryAttempts() { return deliveryAttempts; }
+    public void setDeliveryAttempts(Integer deliveryAttempts) { this.deliveryAttempts = deliveryAttempts; }
+    
+    public LocalDateTime getNextDeliveryAttempt() { return nextDeliveryAttempt; }
+    public void setNextDeliveryAttempt(LocalDateTime nextDeliveryAttempt) { this.nextDeliveryAttempt = nextDeliveryAttempt; }
+    
+    public String getLastDeliveryError() { return lastDeliveryError; }
+    public void setLastDeliveryError(String lastDeliveryError) { this.lastDeliveryError = lastDeliveryError; }
+    
+    public String getDeliveryOwner() { return deliveryOwner; }
+    public void setDeliveryOwner(String deliveryOwner) { this.deliveryOwner = deliveryOwner; }
+    
+    public LocalDateTime getDeliveryLeaseExpires() { return deliveryLeaseExpires; }
+    public void setDeliveryLeaseExpires(LocalDateTime deliveryLeaseExpires) { this.deliveryLeaseExpires = deliveryLeaseExpires; }
+    
+    public WorkQueueType getTargetQueueType() { return targetQueueType; }
+    public void setTargetQueueType(WorkQueueType targetQueueType) { this.targetQueueType = targetQueueType; }
+    
+    public LocalDateTime getDeferredSince() { return deferredSince; }
+    public void setDeferredSince(LocalDateTime deferredSince) { this.deferredSince = deferredSince; }
+    
+    public String getInReplyTo() { return inReplyTo; }
+    public void setInReplyTo(String inReplyTo) { this.inReplyTo = inReplyTo; }
+    
+    public String getReferences() { return references; }
+    public void setReferences(String references) { this.references = references; }
+    
+    private EmailBody body() {
+        if (body == null) {
+            body = new EmailBody();
+        }
+        return body;
+    }
+}
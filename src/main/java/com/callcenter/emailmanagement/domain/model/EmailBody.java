@@ -0,0 +1,166 @@
+package com.callcenter.emailmanagement.domain.model;
+
+import jakarta.persistence.*;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Text and HTML bodies of an {@link Email}, kept out of the emails table so that
+ * loading an email (or a case's list of emails) never reads them. Each body is
+ * stored as one codec byte followed by the UTF-8 bytes, deflated at the fastest
+ * level unless the body is short or does not shrink. Decoded values are cached
+ * on the instance.
+ */
+@Entity
+@Table(name = "email_bodies")
+public class EmailBody {
+    private static final byte RAW = 0;
+    private static final byte DEFLATE = 1;
+
+    // Below this, the deflate header costs more than it saves
+    private static final int MIN_COMPRESS_BYTES = 128;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_body_seq")
+    @SequenceGenerator(name = "email_body_seq", sequenceName = "email_body_seq", allocationSize = 50)
+    private Long id;
+
+    @Lob
+    private byte[] textData;
+
+    @Lob
+    private byte[] htmlData;
+
+    // UTF-8 size of both bodies before and after encoding
+    private Integer rawSize = 0;
+
+    private Integer storedSize = 0;
+
+    @Transient
+    private String textContent;
+
+    @Transient
+    private boolean textDecoded;
+
+    @Transient
+    private String htmlContent;
+
+    @Transient
+    private boolean htmlDecoded;
+
+    // Constructors
+    public EmailBody() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Integer getRawSize() { return rawSize; }
+
+    public Integer getStoredSize() { return storedSize; }
+
+    public String getTextContent() {
+        if (!textDecoded) {
+            textContent = decode(textData);
+            textDecoded = true;
+        }
+        return textContent;
+    }
+
+    public void setTextContent(String textContent) {
+        this.textContent = textContent;
+        this.textDecoded = true;
+        this.textData = encode(textContent);
+        updateSizes();
+    }
+
+    public String getHtmlContent() {
+        if (!htmlDecoded) {
+            htmlContent = decode(htmlData);
+            htmlDecoded = true;
+        }
+        return htmlContent;
+    }
+
+    public void setHtmlContent(String htmlContent) {
+        this.htmlContent = htmlContent;
+        this.htmlDecoded = true;
+        this.htmlData = encode(htmlContent);
+        updateSizes();
+    }
+
+    private void updateSizes() {
+        rawSize = utf8Length(getTextContent()) + utf8Length(getHtmlContent());
+        storedSize = (textData != null ? textData.length : 0) + (htmlData != null ? htmlData.length : 0);
+    }
+
+    private static int utf8Length(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8).length : 0;
+    }
+
+    static byte[] encode(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+        if (raw.length >= MIN_COMPRESS_BYTES) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(raw);
+                deflater.finish();
+
+                // Only worth keeping if it comes out smaller than the raw bytes
+                byte[] compressed = new byte[raw.length];
+                compressed[0] = DEFLATE;
+                int length = 1;
+                while (!deflater.finished() && length < compressed.length) {
+                    length += deflater.deflate(compressed, length, compressed.length - length);
+                }
+                if (deflater.finished() && length < raw.length) {
+                    return Arrays.copyOf(compressed, length);
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+
+        byte[] stored = new byte[raw.length + 1];
+        stored[0] = RAW;
+        System.arraycopy(raw, 0, stored, 1, raw.length);
+        return stored;
+    }
+
+    static String decode(byte[] stored) {
+        if (stored == null || stored.length == 0) {
+            return null;
+        }
+
+        if (stored[0] == RAW) {
+            return new String(stored, 1, stored.length - 1, StandardCharsets.UTF_8);
+        }
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored, 1, stored.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(stored.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int read = inflater.inflate(buffer);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated email body");
+                }
+                out.write(buffer, 0, read);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt email body", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.callcenter.emailmanagement.domain.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Shared counter from which nodes reserve blocks of sequence values. Each row is
+ * one named sequence; {@code nextValue} is the first value not yet handed out.
+ */
+@Entity
+@Table(name = "id_blocks")
+public class IdBlock {
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private Long nextValue;
+
+    private String lastAllocatedBy;
+
+    private LocalDateTime lastAllocatedTime;
+
+    // Constructors
+    public IdBlock() {}
+
+    public IdBlock(String name, long nextValue) {
+        this.name = name;
+        this.nextValue = nextValue;
+    }
+
+    // Getters and Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public Long getNextValue() { return nextValue; }
+    public void setNextValue(Long nextValue) { this.nextValue = nextValue; }
+
+    public String getLastAllocatedBy() { return lastAllocatedBy; }
+    public void setLastAllocatedBy(String lastAllocatedBy) { this.lastAllocatedBy = lastAllocatedBy; }
+
+    public LocalDateTime getLastAllocatedTime() { return lastAllocatedTime; }
+    public void setLastAllocatedTime(LocalDateTime lastAllocatedTime) { this.lastAllocatedTime = lastAllocatedTime; }
+}
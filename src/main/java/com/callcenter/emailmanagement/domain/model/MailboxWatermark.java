@@ -0,0 +1,72 @@
+package com.callcenter.emailmanagement.domain.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "mailbox_watermarks")
+public class MailboxWatermark {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(unique = true, nullable = false)
+    private String mailboxKey;
+
+    @Column(nullable = false)
+    private Long uidValidity;
+
+    private Long lastUid;
+
+    private LocalDateTime lastSyncTime;
+
+    private LocalDateTime lastFullResyncTime;
+
+    // Constructors
+    public MailboxWatermark() {}
+
+    public MailboxWatermark(String mailboxKey, long uidValidity) {
+        this.mailboxKey = mailboxKey;
+        this.uidValidity = uidValidity;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getMailboxKey() { return mailboxKey; }
+    public void setMailboxKey(String mailboxKey) { this.mailboxKey = mailboxKey; }
+
+    public Long getUidValidity() { return uidValidity; }
+    public void setUidValidity(Long uidValidity) { this.uidValidity = uidValidity; }
+
+    public Long getLastUid() { return lastUid; }
+    public void setLastUid(Long lastUid) { this.lastUid = lastUid; }
+
+    public LocalDateTime getLastSyncTime() { return lastSyncTime; }
+    public void setLastSyncTime(LocalDateTime lastSyncTime) { this.lastSyncTime = lastSyncTime; }
+
+    public LocalDateTime getLastFullResyncTime() { return lastFullResyncTime; }
+    public void setLastFullResyncTime(LocalDateTime lastFullResyncTime) { this.lastFullResyncTime = lastFullResyncTime; }
+
+    /**
+     * A watermark is only usable while the server keeps the same UIDVALIDITY;
+     * once it changes every UID we remember is meaningless.
+     */
+    public boolean isValidFor(long currentUidValidity) {
+        return lastUid != null && uidValidity != null && uidValidity == currentUidValidity;
+    }
+
+    public void resetTo(long currentUidValidity) {
+        this.uidValidity = currentUidValidity;
+        this.lastUid = null;
+        this.lastFullResyncTime = LocalDateTime.now();
+    }
+
+    public void advanceTo(long uid) {
+        if (lastUid == null || uid > lastUid) {
+            this.lastUid = uid;
+        }
+        this.lastSyncTime = LocalDateTime.now();
+    }
+}
@@ -8,7 +8,8 @@ import java.time.temporal.ChronoUnit;
 @Table(name = "sla_tracking")
 public class SlaTracking {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sla_tracking_seq")
+    @SequenceGenerator(name = "sla_tracking_seq", sequenceName = "sla_tracking_seq", allocationSize = 50)
     private Long id;
     
     @OneToOne(fetch = FetchType.LAZY)
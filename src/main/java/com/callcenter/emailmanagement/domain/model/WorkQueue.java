@@ -4,10 +4,15 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "work_queue")
+@Table(name = "work_queue", indexes = {
+    // Matches the ORDER BY of the next-item query so picking never sorts the queue
+    @Index(name = "idx_work_queue_pick", columnList = "queueType, status, priorityScore, addedToQueueTime"),
+    @Index(name = "idx_work_queue_rescore", columnList = "status, nextRescoreAt")
+})
 public class WorkQueue {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "work_queue_seq")
+    @SequenceGenerator(name = "work_queue_seq", sequenceName = "work_queue_seq", allocationSize = 50)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -22,6 +27,9 @@ public class WorkQueue {
     
     private Integer priorityScore;
     
+    // When a time-based priority factor next changes; null if only events can change the score
+    private LocalDateTime nextRescoreAt;
+    
     private LocalDateTime addedToQueueTime;
     
     private LocalDateTime assignedTime;
@@ -29,6 +37,11 @@ public class WorkQueue {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "assigned_agent_id")
     private Agent assignedAgent;
+    
+    // Bumped by every write, including the claim query, so a rescore that read the
+    // item before another node claimed it fails instead of putting it back to PENDING
+    @Version
+    private Long version;
 
     public enum QueueStatus {
         PENDING, ASSIGNED, COMPLETED
@@ -44,7 +57,7 @@ public class WorkQueue {
         this();
         this.caseItem = caseItem;
         this.queueType = queueType;
-        this.priorityScore = calculatePriorityScore();
+        this.priorityScore = baseScore(caseItem, queueType);
     }
 
     // Getters and Setters
@@ -68,6 +81,9 @@ public class WorkQueue {
     public Integer getPriorityScore() { return priorityScore; }
     public void setPriorityScore(Integer priorityScore) { this.priorityScore = priorityScore; }
     
+    public LocalDateTime getNextRescoreAt() { return nextRescoreAt; }
+    public void setNextRescoreAt(LocalDateTime nextRescoreAt) { this.nextRescoreAt = nextRescoreAt; }
+    
     public LocalDateTime getAddedToQueueTime() { return addedToQueueTime; }
     public void setAddedToQueueTime(LocalDateTime addedToQueueTime) { this.addedToQueueTime = addedToQueueTime; }
     
@@ -77,7 +93,13 @@ public class WorkQueue {
     public Agent getAssignedAgent() { return assignedAgent; }
     public void setAssignedAgent(Agent assignedAgent) { this.assignedAgent = assignedAgent; }
     
-    private Integer calculatePriorityScore() {
+    public Long getVersion() { return version; }
+    
+    /**
+     * Score from the case priority and queue type alone; the scoring engine adds
+     * its time- and customer-based factors on top.
+     */
+    public static int baseScore(Case caseItem, WorkQueueType queueType) {
         int score = 0;
         
         if (caseItem != null) {
@@ -1,5 +1,8 @@
 package com.callcenter.emailmanagement.domain.model;
 
+import java.util.Collection;
+import java.util.EnumSet;
+
 public enum WorkQueueType {
     GENERAL_INQUIRY("General Inquiry", 1),
     BILLING_SUPPORT("Billing Support", 2);
@@ -14,4 +17,31 @@ public enum WorkQueueType {
     
     public String getDisplayName() { return displayName; }
     public int getPriority() { return priority; }
+    
+    /**
+     * This queue type's bit in a skill mask.
+     */
+    public long bit() {
+        return 1L << ordinal();
+    }
+    
+    public static long mask(Collection<WorkQueueType> queueTypes) {
+        long mask = 0;
+        if (queueTypes != null) {
+            for (WorkQueueType queueType : queueTypes) {
+                mask |= queueType.bit();
+            }
+        }
+        return mask;
+    }
+    
+    public static EnumSet<WorkQueueType> fromMask(long mask) {
+        EnumSet<WorkQueueType> queueTypes = EnumSet.noneOf(WorkQueueType.class);
+        for (WorkQueueType queueType : values()) {
+            if ((mask & queueType.bit()) != 0) {
+                queueTypes.add(queueType);
+            }
+        }
+        return queueTypes;
+    }
 }
\ No newline at end of file
@@ -1,12 +1,14 @@
 package com.callcenter.emailmanagement.repository;
 
 import com.callcenter.emailmanagement.domain.model.Agent;
-import com.callcenter.emailmanagement.domain.model.WorkQueueType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,8 +20,24 @@ public interface AgentRepository extends JpaRepository<Agent, Long> {
     @Query("SELECT a FROM Agent a WHERE a.status = 'AVAILABLE' AND a.currentCaseCount < a.maxConcurrentCases")
     List<Agent> findAvailableAgents();
     
-    @Query("SELECT a FROM Agent a WHERE a.status = 'AVAILABLE' AND a.currentCaseCount < a.maxConcurrentCases AND :queueType MEMBER OF a.skillSets")
-    List<Agent> findAvailableAgentsBySkill(@Param("queueType") WorkQueueType queueType);
-    
     List<Agent> findByStatus(Agent.AgentStatus status);
+    
+    /**
+     * Counts one more case for the agent unless it is already at
+     * {@code maxConcurrentCases} or is no longer AVAILABLE. Returns 0 in either
+     * case, so capacity and status hold however many nodes claim for the same
+     * agent at once, and whatever status change lands in between.
+     */
+    @Modifying
+    @Query("UPDATE Agent a SET a.currentCaseCount = a.currentCaseCount + 1, a.lastActiveTime = :now WHERE a.id = :id AND a.status = 'AVAILABLE' AND a.currentCaseCount < a.maxConcurrentCases")
+    int takeCase(@Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    /**
+     * Changes only the status, so a case count written concurrently by a claim
+     * is not overwritten with a stale value.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Agent a SET a.status = :status, a.lastActiveTime = :now WHERE a.id = :id")
+    int updateStatus(@Param("id") Long id, @Param("status") Agent.AgentStatus status, @Param("now") LocalDateTime now);
 }
\ No newline at end of file
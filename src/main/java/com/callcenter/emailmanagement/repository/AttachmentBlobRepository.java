@@ -0,0 +1,39 @@
+package com.callcenter.emailmanagement.repository;
+
+import com.callcenter.emailmanagement.domain.model.AttachmentBlob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AttachmentBlobRepository extends JpaRepository<AttachmentBlob, String> {
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE AttachmentBlob b SET b.refCount = b.refCount + 1 WHERE b.hash IN :hashes")
+    int retain(@Param("hashes") Collection<String> hashes);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE AttachmentBlob b SET b.refCount = b.refCount - 1, b.lastReleasedDate = :now WHERE b.hash IN :hashes AND b.refCount > 0")
+    int release(@Param("hashes") Collection<String> hashes, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE AttachmentBlob b SET b.lastReleasedDate = :now WHERE b.hash = :hash AND b.refCount <= 0")
+    int touchUnreferenced(@Param("hash") String hash, @Param("now") LocalDateTime now);
+
+    @Query("SELECT b FROM AttachmentBlob b WHERE b.refCount <= 0 AND b.lastReleasedDate < :cutoff")
+    List<AttachmentBlob> findUnreferencedSince(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Query("SELECT COUNT(b), COALESCE(SUM(b.size), 0), COALESCE(SUM(b.size * b.refCount), 0) FROM AttachmentBlob b")
+    List<Object[]> summarize();
+}
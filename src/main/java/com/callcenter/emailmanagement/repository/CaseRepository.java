@@ -2,10 +2,15 @@ package com.callcenter.emailmanagement.repository;
 
 import com.callcenter.emailmanagement.domain.model.Agent;
 import com.callcenter.emailmanagement.domain.model.Case;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,9 +25,24 @@ public interface CaseRepository extends JpaRepository<Case, Long> {
     
     List<Case> findByCustomerEmail(String customerEmail);
     
+    List<Case> findByStatusAndResolvedDateBefore(Case.CaseStatus status, LocalDateTime cutoff, Pageable pageable);
+    
     @Query("SELECT c FROM Case c WHERE c.status NOT IN ('RESOLVED', 'CLOSED')")
     List<Case> findActiveCases();
     
+    List<Case> findByIdGreaterThanOrderById(Long afterId, Pageable pageable);
+    
+    // Columns only: loading Case entities would also load each one's SLA record
+    @Query("SELECT c.id, c.caseNumber, c.subject, c.customerEmail, c.status, c.queueType FROM Case c WHERE c.id IN :ids")
+    List<Object[]> findSummariesByIds(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT c FROM Case c WHERE c.createdDate >= :since AND c.status NOT IN ('RESOLVED', 'CLOSED') ORDER BY c.createdDate")
+    List<Case> findOpenCasesCreatedSince(@Param("since") LocalDateTime since);
+    
     @Query("SELECT COUNT(c) FROM Case c WHERE c.status = 'NEW'")
     long countNewCases();
-}
\ No newline at end of file
+    
+    @Modifying
+    @Query("UPDATE Case c SET c.assignedAgent = :agent, c.status = 'ASSIGNED', c.lastModifiedDate = :now WHERE c.id = :id")
+    int markAssigned(@Param("id") Long id, @Param("agent") Agent agent, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,15 @@
+package com.callcenter.emailmanagement.repository;
+
+import com.callcenter.emailmanagement.domain.model.EmailBody;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface EmailBodyRepository extends JpaRepository<EmailBody, Long> {
+
+    @Query("SELECT COUNT(b), COALESCE(SUM(b.rawSize), 0), COALESCE(SUM(b.storedSize), 0) FROM EmailBody b")
+    List<Object[]> summarize();
+}
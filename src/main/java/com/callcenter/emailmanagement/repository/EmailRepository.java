@@ -2,9 +2,17 @@ package com.callcenter.emailmanagement.repository;
 
 import com.callcenter.emailmanagement.domain.model.Email;
 import com.callcenter.emailmanagement.domain.model.Case;
+import com.callcenter.emailmanagement.domain.model.WorkQueueType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,9 +21,84 @@ public interface EmailRepository extends JpaRepository<Email, Long> {
     
     Optional<Email> findByMessageId(String messageId);
     
+    boolean existsByMessageId(String messageId);
+    
     List<Email> findByEmailCase(Case emailCase);
     
     List<Email> findByFromAddress(String fromAddress);
     
     List<Email> findByDirection(Email.EmailDirection direction);
+    
+    @Query("SELECT e.messageId FROM Email e WHERE e.messageId IN :messageIds")
+    List<String> findExistingMessageIds(@Param("messageIds") Collection<String> messageIds);
+    
+    @Query("SELECT e.id FROM Email e WHERE e.deliveryStatus = 'QUEUED' AND e.nextDeliveryAttempt <= :now ORDER BY e.nextDeliveryAttempt ASC")
+    List<Long> findDueOutboundIds(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    /**
+     * Claims queued replies for one sender. Each row only moves while it is still
+     * QUEUED, so of several nodes claiming the same reply exactly one gets it.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Email e SET e.deliveryStatus = 'SENDING', e.deliveryOwner = :owner, e.deliveryLeaseExpires = :leaseExpires " +
+           "WHERE e.id IN :ids AND e.deliveryStatus = 'QUEUED'")
+    int claimOutbound(@Param("ids") Collection<Long> ids, @Param("owner") String owner, @Param("leaseExpires") LocalDateTime leaseExpires);
+    
+    // Fetches the body with the email: the sender builds messages outside any transaction
+    @Query("SELECT e FROM Email e LEFT JOIN FETCH e.body WHERE e.id IN :ids AND e.deliveryStatus = 'SENDING' AND e.deliveryOwner = :owner ORDER BY e.nextDeliveryAttempt ASC")
+    List<Email> findClaimedOutbound(@Param("ids") Collection<Long> ids, @Param("owner") String owner);
+    
+    /**
+     * Records a delivery attempt, unless the claim has meanwhile expired and passed
+     * to another sender.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Email e SET e.deliveryStatus = :status, e.deliveryAttempts = :attempts, e.nextDeliveryAttempt = :nextAttempt, " +
+           "e.lastDeliveryError = :error, e.sentDate = :sentDate, e.deliveryOwner = NULL, e.deliveryLeaseExpires = NULL " +
+           "WHERE e.id = :id AND e.deliveryOwner = :owner")
+    int completeDelivery(@Param("id") Long id, @Param("owner") String owner, @Param("status") Email.DeliveryStatus status,
+                         @Param("attempts") Integer attempts, @Param("nextAttempt") LocalDateTime nextAttempt,
+                         @Param("error") String error, @Param("sentDate") LocalDateTime sentDate);
+    
+    /**
+     * Returns replies whose sender stopped (or stalled) mid-delivery to the queue.
+     * Claims still inside their lease belong to a live sender and are left alone.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Email e SET e.deliveryStatus = 'QUEUED', e.deliveryOwner = NULL, e.deliveryLeaseExpires = NULL " +
+           "WHERE e.deliveryStatus = 'SENDING' AND (e.deliveryLeaseExpires IS NULL OR e.deliveryLeaseExpires < :now)")
+    int requeueExpiredDeliveries(@Param("now") LocalDateTime now);
+    
+    @Query("SELECT e.messageId FROM Email e ORDER BY e.id DESC")
+    List<String> findRecentMessageIds(Pageable pageable);
+    
+    @Query("SELECT e FROM Email e WHERE e.deferredSince IS NOT NULL AND e.targetQueueType = :queueType ORDER BY e.receivedDate ASC, e.id ASC")
+    List<Email> findDeferredByQueueType(@Param("queueType") WorkQueueType queueType, Pageable pageable);
+    
+    long countByDeferredSinceIsNotNullAndTargetQueueType(WorkQueueType queueType);
+    
+    /**
+     * Takes a deferred email out of the backlog. Of several nodes admitting the same
+     * email exactly one sees 1; the rest find it already admitted and see 0.
+     */
+    @Modifying
+    @Query("UPDATE Email e SET e.deferredSince = NULL WHERE e.id = :id AND e.deferredSince IS NOT NULL")
+    int claimDeferred(@Param("id") Long id);
+    
+    @Query("SELECT e.messageId, e.emailCase.id FROM Email e WHERE e.messageId IN :messageIds AND e.emailCase IS NOT NULL")
+    List<Object[]> findCaseIdsByMessageIds(@Param("messageIds") Collection<String> messageIds);
+    
+    @Query("SELECT DISTINCT e.fromAddress FROM Email e WHERE e.emailCase.id = :caseId AND e.direction = 'INBOUND'")
+    List<String> findInboundSendersByCaseId(@Param("caseId") Long caseId);
+    
+    Optional<Email> findFirstByEmailCaseAndDirectionOrderByReceivedDateDesc(Case emailCase, Email.EmailDirection direction);
+    
+    @Query("SELECT e FROM Email e JOIN FETCH e.emailCase LEFT JOIN FETCH e.body WHERE e.id > :afterId ORDER BY e.id")
+    List<Email> findWithCaseAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    @Query("SELECT COUNT(e) > 0 FROM Email e JOIN e.attachmentUrls ref WHERE ref LIKE :refPrefix")
+    boolean existsByAttachmentRefPrefix(@Param("refPrefix") String refPrefix);
 }
\ No newline at end of file
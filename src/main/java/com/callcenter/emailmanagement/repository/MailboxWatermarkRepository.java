@@ -0,0 +1,13 @@
+package com.callcenter.emailmanagement.repository;
+
+import com.callcenter.emailmanagement.domain.model.MailboxWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface MailboxWatermarkRepository extends JpaRepository<MailboxWatermark, Long> {
+
+    Optional<MailboxWatermark> findByMailboxKey(String mailboxKey);
+}
@@ -1,14 +1,18 @@
 package com.callcenter.emailmanagement.repository;
 
+import com.callcenter.emailmanagement.domain.model.Agent;
 import com.callcenter.emailmanagement.domain.model.WorkQueue;
 import com.callcenter.emailmanagement.domain.model.WorkQueueType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface WorkQueueRepository extends JpaRepository<WorkQueue, Long> {
@@ -18,8 +22,26 @@ public interface WorkQueueRepository extends JpaRepository<WorkQueue, Long> {
     @Query("SELECT w FROM WorkQueue w WHERE w.queueType = :queueType AND w.status = 'PENDING' ORDER BY w.priorityScore DESC, w.addedToQueueTime ASC")
     List<WorkQueue> findPendingByQueueTypeOrderedByPriority(@Param("queueType") WorkQueueType queueType);
     
-    @Query(value = "SELECT * FROM work_queue w WHERE w.queue_type = :queueType AND w.status = 'PENDING' ORDER BY w.priority_score DESC, w.added_to_queue_time ASC LIMIT 1", nativeQuery = true)
-    Optional<WorkQueue> findNextPendingByQueueType(@Param("queueType") String queueType);
-    
     long countByQueueTypeAndStatus(WorkQueueType queueType, WorkQueue.QueueStatus status);
+    
+    @Query("SELECT w FROM WorkQueue w JOIN FETCH w.caseItem c LEFT JOIN FETCH c.slaTracking WHERE w.status = 'PENDING' AND w.nextRescoreAt <= :now ORDER BY w.nextRescoreAt")
+    List<WorkQueue> findDueForRescore(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    List<WorkQueue> findByCaseItemIdAndStatus(Long caseId, WorkQueue.QueueStatus status);
+    
+    @Query("SELECT w.id, w.caseItem.id, w.queueType, w.priorityScore, w.addedToQueueTime FROM WorkQueue w WHERE w.status = 'PENDING'")
+    List<Object[]> findPendingSummaries();
+    
+    @Query("SELECT w.id, w.caseItem.id, w.queueType, w.priorityScore, w.addedToQueueTime FROM WorkQueue w WHERE w.queueType = :queueType AND w.status = 'PENDING' ORDER BY w.priorityScore DESC, w.addedToQueueTime ASC")
+    List<Object[]> findPendingSummariesByQueueType(@Param("queueType") WorkQueueType queueType, Pageable pageable);
+    
+    /**
+     * Claims a pending item for an agent. The row lock taken by the update makes
+     * this atomic across nodes: of any number of concurrent claims exactly one
+     * returns 1, the rest see the item no longer pending and return 0.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE WorkQueue w SET w.status = 'ASSIGNED', w.assignedAgent = :agent, w.assignedTime = :now, w.version = w.version + 1 WHERE w.id = :id AND w.status = 'PENDING'")
+    int claim(@Param("id") Long id, @Param("agent") Agent agent, @Param("now") LocalDateTime now);
 }
\ No newline at end of file
@@ -0,0 +1,188 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.Agent;
+import com.callcenter.emailmanagement.domain.model.WorkQueueType;
+import com.callcenter.emailmanagement.repository.AgentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory view of which agents can take another case, one set per queue type
+ * holding the agents that are AVAILABLE, below {@code maxConcurrentCases} and
+ * skilled for it. Finding eligible agents is a map lookup with no database round
+ * trip; skills come from {@link Agent#getSkillMask()}, so the skill collection is
+ * never joined.
+ *
+ * The index is told about status changes and about every case claimed or
+ * resolved on this node. Every {@code refresh-interval-ms} it reloads the agents to pick
+ * up changes made elsewhere. Membership can briefly lag a concurrent update, so
+ * readers check {@link AgentSlot#getSpareCapacity()} before using an agent.
+ */
+@Service
+public class AgentAvailabilityIndex {
+    private static final Logger logger = LoggerFactory.getLogger(AgentAvailabilityIndex.class);
+
+    @Autowired
+    private AgentRepository agentRepository;
+
+    private final Map<Long, AgentSlot> slots = new ConcurrentHashMap<>();
+    private final Map<String, AgentSlot> slotsByAgentId = new ConcurrentHashMap<>();
+    private final Map<WorkQueueType, Set<AgentSlot>> available = new EnumMap<>(WorkQueueType.class);
+
+    public AgentAvailabilityIndex() {
+        for (WorkQueueType queueType : WorkQueueType.values()) {
+            available.put(queueType, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.agents.index.refresh-interval-ms:30000}",
+               fixedDelayString = "${app.agents.index.refresh-interval-ms:30000}")
+    public void refresh() {
+        Set<Long> seen = new HashSet<>();
+        for (Agent agent : agentRepository.findAll()) {
+            update(agent);
+            seen.add(agent.getId());
+        }
+        slots.keySet().removeIf(id -> {
+            if (seen.contains(id)) {
+                return false;
+            }
+            available.values().forEach(agents -> agents.removeIf(slot -> slot.id == id));
+            slotsByAgentId.values().removeIf(slot -> slot.id == id);
+            return true;
+        });
+        logger.debug("👥 Agent index refreshed: {} agents, available {}", slots.size(), sizes());
+    }
+
+    /**
+     * Takes the agent's status, limits, skills and stored case count.
+     */
+    public void update(Agent agent) {
+        AgentSlot slot = slots.computeIfAbsent(agent.getId(), id -> new AgentSlot(id, agent.getAgentId()));
+        slotsByAgentId.put(slot.agentId, slot);
+        slot.name = agent.getName();
+        slot.status = agent.getStatus();
+        slot.maxCases = agent.getMaxConcurrentCases() != null ? agent.getMaxConcurrentCases() : 0;
+        slot.skillMask = agent.getSkillMask();
+        int stored = agent.getCurrentCaseCount() != null ? agent.getCurrentCaseCount() : 0;
+        slot.caseCount.set(stored);
+        reindex(slot);
+    }
+
+    public void statusChanged(Long agentId, Agent.AgentStatus status) {
+        AgentSlot slot = slots.get(agentId);
+        if (slot != null) {
+            slot.status = status;
+            reindex(slot);
+        }
+    }
+
+    /**
+     * A case was claimed for the agent and its stored count incremented.
+     */
+    public void assigned(Long agentId) {
+        AgentSlot slot = slots.get(agentId);
+        if (slot != null) {
+            slot.caseCount.incrementAndGet();
+            reindex(slot);
+        }
+    }
+
+    public void released(Long agentId) {
+        AgentSlot slot = slots.get(agentId);
+        if (slot != null) {
+            slot.caseCount.updateAndGet(count -> Math.max(0, count - 1));
+            reindex(slot);
+        }
+    }
+
+    /**
+     * Agents that can take a case from the queue right now.
+     */
+    public List<AgentSlot> availableAgents(WorkQueueType queueType) {
+        List<AgentSlot> agents = new ArrayList<>();
+        for (AgentSlot slot : available.get(queueType)) {
+            if (slot.getSpareCapacity() > 0) {
+                agents.add(slot);
+            }
+        }
+        return agents;
+    }
+
+    public Optional<AgentSlot> get(Long agentId) {
+        return Optional.ofNullable(slots.get(agentId));
+    }
+
+    /**
+     * Looks an agent up by its agent code (e.g. AGENT001) without a query.
+     */
+    public Optional<AgentSlot> find(String agentId) {
+        return Optional.ofNullable(slotsByAgentId.get(agentId));
+    }
+
+    public Map<WorkQueueType, Integer> sizes() {
+        Map<WorkQueueType, Integer> sizes = new EnumMap<>(WorkQueueType.class);
+        for (Map.Entry<WorkQueueType, Set<AgentSlot>> entry : available.entrySet()) {
+            sizes.put(entry.getKey(), entry.getValue().size());
+        }
+        return sizes;
+    }
+
+    private void reindex(AgentSlot slot) {
+        boolean eligible = slot.getSpareCapacity() > 0;
+        for (WorkQueueType queueType : WorkQueueType.values()) {
+            if (eligible && (slot.skillMask & queueType.bit()) != 0) {
+                available.get(queueType).add(slot);
+            } else {
+                available.get(queueType).remove(slot);
+            }
+        }
+    }
+
+    /**
+     * What the index knows about one agent. Identity-based, so it can sit in the
+     * per-queue sets while its fields change.
+     */
+    public static final class AgentSlot {
+        private final long id;
+        private final String agentId;
+        private volatile String name;
+        private volatile Agent.AgentStatus status;
+        private volatile int maxCases;
+        private volatile long skillMask;
+        private final AtomicInteger caseCount = new AtomicInteger();
+
+        private AgentSlot(long id, String agentId) {
+            this.id = id;
+            this.agentId = agentId;
+        }
+
+        public long getId() { return id; }
+        public String getAgentId() { return agentId; }
+        public String getName() { return name; }
+        public Agent.AgentStatus getStatus() { return status; }
+        public int getMaxConcurrentCases() { return maxCases; }
+        public int getCurrentCaseCount() { return caseCount.get(); }
+        public Set<WorkQueueType> getSkills() { return WorkQueueType.fromMask(skillMask); }
+
+        public int getSpareCapacity() {
+            return status == Agent.AgentStatus.AVAILABLE ? Math.max(0, maxCases - caseCount.get()) : 0;
+        }
+    }
+}
@@ -0,0 +1,523 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.SlaTracking;
+import com.callcenter.emailmanagement.domain.model.WorkQueueType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Pushes new-case, assignment and SLA-warning events to agent desktops over
+ * Server-Sent Events, so they no longer poll {@code next-case}. An agent may have
+ * several sessions open (one per desktop tab or device); each gets every event
+ * for the agent.
+ *
+ * Events are not written when published. They are queued on each session, and a
+ * flusher thread wakes at most once per {@code coalesce-ms} to write everything
+ * queued as a single response flush. New-case events for the same queue type
+ * merge into one with the summed count, so a burst of mail is one event per queue.
+ *
+ * Writes run on a small pool of sender threads, with at most one write in flight
+ * per session; events for a session that is still writing wait for the next
+ * flush. A session whose backlog passes {@code max-pending-events}, or whose
+ * write has been blocked for {@code write-timeout-ms}, is closed, and the client
+ * reconnects and reloads its state instead of receiving a stale backlog. A
+ * blocked write keeps its thread until the container gives up on the socket, so
+ * the pool gets a replacement thread for each one (up to
+ * {@code max-sender-threads}) and the other sessions keep being served. Closing
+ * waits for the session's write to finish, so closes run on their own threads. The servlet container holds idle connections without a thread, so
+ * thousands of open sessions cost only their buffers.
+ */
+@Service
+public class AgentNotificationHub {
+    private static final Logger logger = LoggerFactory.getLogger(AgentNotificationHub.class);
+
+    @Value("${app.notifications.session-timeout-ms:1800000}")
+    private long sessionTimeoutMs;
+
+    @Value("${app.notifications.max-sessions:10000}")
+    private int maxSessions;
+
+    @Value("${app.notifications.max-sessions-per-agent:5}")
+    private int maxSessionsPerAgent;
+
+    @Value("${app.notifications.max-pending-events:256}")
+    private int maxPendingEvents;
+
+    @Value("${app.notifications.coalesce-ms:100}")
+    private long coalesceMs;
+
+    @Value("${app.notifications.heartbeat-interval-ms:15000}")
+    private long heartbeatIntervalMs;
+
+    @Value("${app.notifications.sender-threads:4}")
+    private int senderThreads;
+
+    @Value("${app.notifications.max-sender-threads:16}")
+    private int maxSenderThreads;
+
+    @Value("${app.notifications.write-timeout-ms:10000}")
+    private long writeTimeoutMs;
+
+    // Keyed by Agent.id, which callers can read from a lazy reference without loading it
+    private final Map<Long, Set<Session>> sessionsByAgent = new ConcurrentHashMap<>();
+    private final AtomicInteger sessionCount = new AtomicInteger();
+
+    private final Set<Session> dirty = ConcurrentHashMap.newKeySet();
+    // Sessions with a write in flight, including ones closed since it started
+    private final Set<Session> writing = ConcurrentHashMap.newKeySet();
+    private final Semaphore wakeups = new Semaphore(0);
+    private final AtomicLong eventIds = new AtomicLong();
+    private volatile boolean running = true;
+    private ThreadPoolExecutor senders;
+    private ExecutorService closers;
+    private Thread flusher;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong slowConsumersClosed = new AtomicLong();
+    private final AtomicLong writesTimedOut = new AtomicLong();
+
+    @PostConstruct
+    public void initialize() {
+        AtomicInteger senderNumber = new AtomicInteger();
+        senders = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            runnable -> Thread.ofPlatform().name("agent-notification-sender-" + senderNumber.incrementAndGet())
+                .daemon().unstarted(runnable));
+        AtomicInteger closerNumber = new AtomicInteger();
+        closers = Executors.newCachedThreadPool(runnable -> Thread.ofPlatform()
+            .name("agent-notification-closer-" + closerNumber.incrementAndGet()).daemon().unstarted(runnable));
+        flusher = Thread.ofPlatform().name("agent-notification-flusher").daemon().start(this::flushLoop);
+    }
+
+    /**
+     * Opens a session for the agent, or returns empty if the hub is at
+     * {@code max-sessions}. The agent's oldest session is closed if it already has
+     * {@code max-sessions-per-agent}.
+     */
+    public Optional<SseEmitter> subscribe(Long agentId, String agentCode) {
+        if (sessionCount.incrementAndGet() > maxSessions) {
+            sessionCount.decrementAndGet();
+            logger.warn("⚠️ Refused event stream for agent {}: {} sessions open", agentCode, maxSessions);
+            return Optional.empty();
+        }
+
+        SseEmitter emitter = new SseEmitter(sessionTimeoutMs);
+        Session session = new Session(agentId, emitter);
+        Set<Session> sessions = sessionsByAgent.compute(agentId, (id, current) -> {
+            Set<Session> updated = current != null ? current : ConcurrentHashMap.<Session>newKeySet();
+            updated.add(session);
+            return updated;
+        });
+        emitter.onCompletion(() -> remove(session));
+        emitter.onTimeout(() -> remove(session));
+        emitter.onError(error -> remove(session));
+
+        if (sessions.size() > maxSessionsPerAgent) {
+            sessions.stream().min((a, b) -> Long.compare(a.openedAt, b.openedAt))
+                .filter(oldest -> oldest != session)
+                .ifPresent(this::close);
+        }
+
+        session.enqueue(new AgentEvent("connected", null, null, null, "Listening for agent " + agentCode), maxPendingEvents);
+        schedule(session);
+        logger.info("📡 Agent {} opened an event stream ({} sessions open)", agentCode, sessionCount.get());
+        return Optional.of(emitter);
+    }
+
+    /**
+     * Cases entered a queue the agent can work; merged with any not yet sent.
+     */
+    public void newCases(Long agentId, WorkQueueType queueType, int count) {
+        publish(agentId, session -> {
+            if (session.addNewCases(queueType, count)) {
+                coalesced.incrementAndGet();
+            }
+        });
+    }
+
+    public void caseAssigned(Long agentId, QueueDispatcher.QueuedItem item) {
+        AgentEvent event = new AgentEvent("assignment", item.getQueueType(), item.getCaseId(), null,
+            "Priority " + item.getPriorityScore());
+        publish(agentId, session -> enqueue(session, event));
+    }
+
+    public void slaWarning(Long agentId, Long caseId, String caseNumber, SlaTracking.SlaStatus status) {
+        AgentEvent event = new AgentEvent("sla-warning", null, caseId, caseNumber, status.name());
+        publish(agentId, session -> enqueue(session, event));
+    }
+
+    public boolean isConnected(Long agentId) {
+        Set<Session> sessions = sessionsByAgent.get(agentId);
+        return sessions != null && !sessions.isEmpty();
+    }
+
+    public NotificationMetrics getMetrics() {
+        return new NotificationMetrics(sessionCount.get(), sessionsByAgent.size(), published.get(),
+            coalesced.get(), sent.get(), flushes.get(), slowConsumersClosed.get(), writesTimedOut.get(),
+            senders.getMaximumPoolSize());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        flusher.interrupt();
+        flusher.join(TimeUnit.SECONDS.toMillis(5));
+        sessionsByAgent.values().forEach(sessions -> sessions.forEach(this::close));
+        senders.shutdown();
+        closers.shutdown();
+        senders.awaitTermination(5, TimeUnit.SECONDS);
+        closers.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private void publish(Long agentId, Consumer<Session> action) {
+        if (agentId == null) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            Set<Session> sessions = sessionsByAgent.get(agentId);
+            if (sessions == null || sessions.isEmpty()) {
+                return;
+            }
+            published.incrementAndGet();
+            for (Session session : sessions) {
+                action.accept(session);
+                schedule(session);
+            }
+        });
+    }
+
+    private void enqueue(Session session, AgentEvent event) {
+        if (!session.enqueue(event, maxPendingEvents)) {
+            slowConsumersClosed.incrementAndGet();
+            logger.warn("⚠️ Closing event stream of agent {}: {} events unsent", session.agentId, maxPendingEvents);
+            close(session);
+        }
+    }
+
+    private void schedule(Session session) {
+        if (!session.closed.get()) {
+            dirty.add(session);
+            wakeups.release();
+        }
+    }
+
+    private void flushLoop() {
+        long nextHeartbeat = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(heartbeatIntervalMs);
+        // Wakes often enough to notice a blocked write within about one timeout
+        long waitMs = Math.min(heartbeatIntervalMs, writeTimeoutMs);
+        while (running) {
+            try {
+                if (wakeups.tryAcquire(waitMs, TimeUnit.MILLISECONDS)) {
+                    // Let the rest of a burst arrive before writing
+                    Thread.sleep(coalesceMs);
+                    wakeups.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            closeBlockedWriters();
+
+            if (System.nanoTime() - nextHeartbeat >= 0) {
+                nextHeartbeat = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(heartbeatIntervalMs);
+                sessionsByAgent.values().forEach(sessions -> sessions.forEach(session -> {
+                    session.heartbeatDue = true;
+                    dirty.add(session);
+                }));
+            }
+
+            for (Session session : dirty) {
+                dirty.remove(session);
+                if (session.closed.get() || !session.sending.compareAndSet(false, true)) {
+                    // A write still in flight picks this up when it finishes
+                    continue;
+                }
+                flushes.incrementAndGet();
+                senders.execute(() -> send(session));
+            }
+        }
+    }
+
+    private void send(Session session) {
+        try {
+            Set<ResponseBodyEmitter.DataWithMediaType> frames = new LinkedHashSet<>();
+            int events = 0;
+            for (AgentEvent event : session.drain()) {
+                frames.addAll(SseEmitter.event()
+                    .id(Long.toString(eventIds.incrementAndGet()))
+                    .name(event.getType())
+                    .data(event, MediaType.APPLICATION_JSON)
+                    .build());
+                events++;
+            }
+            if (session.heartbeatDue) {
+                session.heartbeatDue = false;
+                frames.addAll(SseEmitter.event().comment("heartbeat").build());
+            }
+            if (!frames.isEmpty()) {
+                session.writeStartedAt = System.nanoTime();
+                writing.add(session);
+                try {
+                    session.emitter.send(frames);
+                } finally {
+                    writing.remove(session);
+                }
+                sent.addAndGet(events);
+            }
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("📡 Event stream of agent {} closed: {}", session.agentId, e.getMessage());
+            close(session);
+        } finally {
+            if (session.timedOut.getAndSet(false)) {
+                // The write came back; give up the thread added in its place
+                resizeSenders(-1);
+            }
+            session.sending.set(false);
+            if (session.hasPending()) {
+                schedule(session);
+            }
+        }
+    }
+
+    /**
+     * Closes sessions whose write has been blocked for longer than
+     * {@code write-timeout-ms}, and adds a sender thread for each so the ones
+     * still healthy are not left waiting behind it.
+     */
+    private void closeBlockedWriters() {
+        long now = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs);
+        for (Session session : writing) {
+            if (now - session.writeStartedAt <= timeoutNanos || session.timedOut.get()) {
+                continue;
+            }
+            writesTimedOut.incrementAndGet();
+            if (!session.closed.get()) {
+                slowConsumersClosed.incrementAndGet();
+                logger.warn("⚠️ Closing event stream of agent {}: write blocked for over {} ms", session.agentId, writeTimeoutMs);
+                close(session);
+            }
+            if (!resizeSenders(1)) {
+                logger.warn("⚠️ Agent notification senders at max-sender-threads ({}); blocked writes are delaying others",
+                    maxSenderThreads);
+                continue;
+            }
+            session.timedOut.set(true);
+            if (!writing.contains(session) && session.timedOut.getAndSet(false)) {
+                // The write returned while the thread was being added
+                resizeSenders(-1);
+            }
+        }
+    }
+
+    /**
+     * Grows or shrinks the sender pool by one. Growth stops at
+     * {@code max-sender-threads}; returns false if the pool could not grow.
+     */
+    private boolean resizeSenders(int delta) {
+        synchronized (senders) {
+            int size = senders.getMaximumPoolSize() + delta;
+            if (delta > 0) {
+                if (size > Math.max(senderThreads, maxSenderThreads)) {
+                    return false;
+                }
+                senders.setMaximumPoolSize(size);
+                senders.setCorePoolSize(size);
+            } else {
+                size = Math.max(senderThreads, size);
+                senders.setCorePoolSize(size);
+                senders.setMaximumPoolSize(size);
+            }
+            return true;
+        }
+    }
+
+    private void close(Session session) {
+        if (session.closed.compareAndSet(false, true)) {
+            remove(session);
+            // complete() waits for a write in flight, so neither the caller nor a sender may run it
+            closers.execute(() -> {
+                try {
+                    session.emitter.complete();
+                } catch (RuntimeException e) {
+                    logger.debug("📡 Completing event stream failed: {}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void remove(Session session) {
+        session.closed.set(true);
+        sessionsByAgent.computeIfPresent(session.agentId, (id, current) -> {
+            if (current.remove(session)) {
+                sessionCount.decrementAndGet();
+            }
+            return current.isEmpty() ? null : current;
+        });
+        dirty.remove(session);
+    }
+
+    /**
+     * One open event stream. Events are queued here until the flusher writes them.
+     */
+    private static final class Session {
+        private final Long agentId;
+        private final SseEmitter emitter;
+        private final long openedAt = System.nanoTime();
+        private final Queue<AgentEvent> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final Map<WorkQueueType, AtomicInteger> newCases = new EnumMap<>(WorkQueueType.class);
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+        // System.nanoTime() when the latest write started
+        private volatile long writeStartedAt;
+        // The write in flight outlived write-timeout-ms and a sender thread was added for it
+        private final AtomicBoolean timedOut = new AtomicBoolean();
+
+        private Session(Long agentId, SseEmitter emitter) {
+            this.agentId = agentId;
+            this.emitter = emitter;
+            for (WorkQueueType queueType : WorkQueueType.values()) {
+                newCases.put(queueType, new AtomicInteger());
+            }
+        }
+
+        boolean enqueue(AgentEvent event, int limit) {
+            if (pendingCount.incrementAndGet() > limit) {
+                pendingCount.decrementAndGet();
+                return false;
+            }
+            pending.add(event);
+            return true;
+        }
+
+        /**
+         * Returns true if the cases were merged into a new-case event not yet sent.
+         */
+        boolean addNewCases(WorkQueueType queueType, int count) {
+            return newCases.get(queueType).getAndAdd(count) > 0;
+        }
+
+        boolean hasPending() {
+            if (pendingCount.get() > 0) {
+                return true;
+            }
+            for (AtomicInteger count : newCases.values()) {
+                if (count.get() > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        List<AgentEvent> drain() {
+            List<AgentEvent> events = new ArrayList<>();
+            for (Map.Entry<WorkQueueType, AtomicInteger> entry : newCases.entrySet()) {
+                int count = entry.getValue().getAndSet(0);
+                if (count > 0) {
+                    events.add(new AgentEvent("new-case", entry.getKey(), null, null, count + " new"));
+                }
+            }
+            AgentEvent event;
+            while ((event = pending.poll()) != null) {
+                pendingCount.decrementAndGet();
+                events.add(event);
+            }
+            return events;
+        }
+    }
+
+    public static class AgentEvent {
+        private final String type;
+        private final WorkQueueType queueType;
+        private final Long caseId;
+        private final String caseNumber;
+        private final String detail;
+        private final LocalDateTime at = LocalDateTime.now();
+
+        public AgentEvent(String type, WorkQueueType queueType, Long caseId, String caseNumber, String detail) {
+            this.type = type;
+            this.queueType = queueType;
+            this.caseId = caseId;
+            this.caseNumber = caseNumber;
+            this.detail = detail;
+        }
+
+        public String getType() { return type; }
+        public WorkQueueType getQueueType() { return queueType; }
+        public Long getCaseId() { return caseId; }
+        public String getCaseNumber() { return caseNumber; }
+        public String getDetail() { return detail; }
+        public LocalDateTime getAt() { return at; }
+    }
+
+    public static class NotificationMetrics {
+        private final int sessions;
+        private final int agents;
+        private final long published;
+        private final long coalesced;
+        private final long sent;
+        private final long flushes;
+        private final long slowConsumersClosed;
+        private final long writesTimedOut;
+        private final int senderThreads;
+
+        public NotificationMetrics(int sessions, int agents, long published, long coalesced,
+                                   long sent, long flushes, long slowConsumersClosed,
+                                   long writesTimedOut, int senderThreads) {
+            this.sessions = sessions;
+            this.agents = agents;
+            this.published = published;
+            this.coalesced = coalesced;
+            this.sent = sent;
+            this.flushes = flushes;
+            this.slowConsumersClosed = slowConsumersClosed;
+            this.writesTimedOut = writesTimedOut;
+            this.senderThreads = senderThreads;
+        }
+
+        public int getSessions() { return sessions; }
+        public int getAgents() { return agents; }
+        public long getPublished() { return published; }
+        public long getCoalesced() { return coalesced; }
+        public long getSent() { return sent; }
+        public long getFlushes() { return flushes; }
+        public long getSlowConsumersClosed() { return slowConsumersClosed; }
+        public long getWritesTimedOut() { return writesTimedOut; }
+        public int getSenderThreads() { return senderThreads; }
+    }
+}
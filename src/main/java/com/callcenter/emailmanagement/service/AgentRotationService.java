@@ -20,6 +20,12 @@ public class AgentRotationService {
     @Autowired
     private AgentRepository agentRepository;
     
+    @Autowired
+    private AgentAvailabilityIndex agentAvailabilityIndex;
+    
+    @Autowired
+    private AssignmentDispatcher assignmentDispatcher;
+    
     private boolean initialized = false;
     
     @Scheduled(fixedRate = 60000) // Every 60 seconds
@@ -54,7 +60,12 @@ public class AgentRotationService {
             }
             
             agent.setLastActiveTime(LocalDateTime.now());
-            agentRepository.save(agent);
+            agentRepository.updateStatus(agent.getId(), agent.getStatus(), agent.getLastActiveTime());
+            agentAvailabilityIndex.statusChanged(agent.getId(), agent.getStatus());
+            
+            if (agent.getStatus() == Agent.AgentStatus.AVAILABLE) {
+                assignmentDispatcher.agentFreed(agent);
+            }
         }
         
         // Log current agent status
@@ -80,6 +91,8 @@ public class AgentRotationService {
         
         agentRepository.save(agent1);
         agentRepository.save(agent2);
+        agentAvailabilityIndex.update(agent1);
+        agentAvailabilityIndex.update(agent2);
         
         logger.info("✅ Initialized 2 test agents");
         logger.info("👤 Agent 1: {} - Skills: {}", agent1.getName(), agent1.getSkillSets());
@@ -97,7 +110,7 @@ public class AgentRotationService {
                 agent.getStatus(),
                 agent.getCurrentCaseCount(),
                 agent.getMaxConcurrentCases(),
-                agent.getSkillSets()
+                WorkQueueType.fromMask(agent.getSkillMask())
             );
         });
     }
@@ -106,8 +119,13 @@ public class AgentRotationService {
         agentRepository.findByAgentId(agentId).ifPresent(agent -> {
             agent.setStatus(status);
             agent.setLastActiveTime(LocalDateTime.now());
-            agentRepository.save(agent);
+            agentRepository.updateStatus(agent.getId(), status, agent.getLastActiveTime());
+            agentAvailabilityIndex.statusChanged(agent.getId(), status);
             logger.info("📝 Updated agent {} status to {}", agentId, status);
+            
+            if (status == Agent.AgentStatus.AVAILABLE) {
+                assignmentDispatcher.agentFreed(agent);
+            }
         });
     }
 }
\ No newline at end of file
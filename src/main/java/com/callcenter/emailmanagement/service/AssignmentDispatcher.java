@@ -0,0 +1,216 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.Agent;
+import com.callcenter.emailmanagement.domain.model.WorkQueueType;
+import com.callcenter.emailmanagement.repository.AgentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes queued cases to agents instead of waiting for them to call
+ * {@code next-case}. Two events mark a queue type as due: a case entering it, and
+ * an agent with that skill gaining capacity (becoming available or resolving a
+ * case). Signals are coalesced, so a burst of new mail costs one pass per queue
+ * type rather than one per case.
+ *
+ * A pass takes the eligible agents for the queue type from the
+ * {@link AgentAvailabilityIndex} and hands out the highest-priority items round-robin, one per agent per round,
+ * until the queue or the capacity runs out or {@code batch-size} items have gone.
+ * Each item is claimed through {@link QueueDispatcher#claim}, so pull requests
+ * and other nodes can run alongside. A sweep every {@code sweep-interval-ms}
+ * catches anything a signal missed, including items the dispatcher's resync
+ * picked up from other nodes.
+ */
+@Service
+public class AssignmentDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(AssignmentDispatcher.class);
+
+    @Autowired
+    private QueueDispatcher queueDispatcher;
+
+    @Autowired
+    private AgentAvailabilityIndex agentAvailabilityIndex;
+
+    @Autowired
+    private AgentRepository agentRepository;
+
+    @Autowired
+    private AgentNotificationHub agentNotificationHub;
+
+    @Value("${app.assignment.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.assignment.batch-size:100}")
+    private int batchSize;
+
+    private final Set<WorkQueueType> due = ConcurrentHashMap.newKeySet();
+    private final Semaphore wakeups = new Semaphore(0);
+    private volatile boolean running = true;
+    private Thread worker;
+
+    private final AtomicLong signals = new AtomicLong();
+    private final AtomicLong passes = new AtomicLong();
+    private final AtomicLong assigned = new AtomicLong();
+
+    @PostConstruct
+    public void initialize() {
+        if (!enabled) {
+            logger.info("📬 Push assignment disabled - agents pull work with next-case");
+            return;
+        }
+        worker = Thread.ofPlatform().name("assignment-dispatcher").daemon().start(this::dispatchLoop);
+    }
+
+    /**
+     * Cases were added to the queue; assigns them once the current transaction
+     * commits and the items are claimable.
+     */
+    public void queueChanged(WorkQueueType queueType) {
+        TransactionCallbacks.afterCommit(() -> signal(EnumSet.of(queueType)));
+    }
+
+    /**
+     * The agent became available or finished a case; marks the queue types it is
+     * skilled for as due.
+     */
+    public void agentFreed(Agent agent) {
+        logger.debug("📬 Agent {} has capacity", agent.getAgentId());
+        EnumSet<WorkQueueType> queueTypes = WorkQueueType.fromMask(agent.getSkillMask());
+        if (!queueTypes.isEmpty()) {
+            TransactionCallbacks.afterCommit(() -> signal(queueTypes));
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.assignment.sweep-interval-ms:5000}",
+               fixedDelayString = "${app.assignment.sweep-interval-ms:5000}")
+    public void sweep() {
+        signal(EnumSet.allOf(WorkQueueType.class));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    public AssignmentMetrics getMetrics() {
+        return new AssignmentMetrics(enabled, signals.get(), passes.get(), assigned.get());
+    }
+
+    private void signal(Collection<WorkQueueType> queueTypes) {
+        if (!enabled) {
+            return;
+        }
+        signals.incrementAndGet();
+        due.addAll(queueTypes);
+        wakeups.release();
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                wakeups.acquire();
+                wakeups.drainPermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            for (WorkQueueType queueType : WorkQueueType.values()) {
+                if (!due.remove(queueType)) {
+                    continue;
+                }
+                try {
+                    dispatch(queueType);
+                } catch (RuntimeException e) {
+                    logger.warn("⚠️ Assignment pass for {} failed: {}", queueType, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void dispatch(WorkQueueType queueType) {
+        if (queueDispatcher.size(queueType) == 0) {
+            return;
+        }
+
+        List<AgentAvailabilityIndex.AgentSlot> agents = agentAvailabilityIndex.availableAgents(queueType);
+        if (agents.isEmpty()) {
+            return;
+        }
+        passes.incrementAndGet();
+
+        // The index counts each claim straight away, so spare capacity is re-read every round
+        int count = 0;
+        boolean progress = true;
+        while (progress && count < batchSize) {
+            progress = false;
+            for (int i = 0; i < agents.size() && count < batchSize; i++) {
+                AgentAvailabilityIndex.AgentSlot slot = agents.get(i);
+                if (slot.getSpareCapacity() == 0) {
+                    continue;
+                }
+                Optional<QueueDispatcher.QueuedItem> item = queueDispatcher.claim(queueType, agentRepository.getReferenceById(slot.getId()));
+                if (item.isEmpty()) {
+                    if (slot.getSpareCapacity() == 0) {
+                        // Full in the database after all; the claim re-read its count
+                        continue;
+                    }
+                    progress = false;
+                    break;
+                }
+                count++;
+                progress = true;
+                agentNotificationHub.caseAssigned(slot.getId(), item.get());
+                logger.debug("📬 Pushed case {} to agent {}", item.get().getCaseId(), slot.getAgentId());
+            }
+        }
+
+        assigned.addAndGet(count);
+        if (count > 0) {
+            logger.info("📬 Pushed {} {} cases to {} agents", count, queueType, agents.size());
+        }
+        if (count == batchSize) {
+            // Batch full; come back for the rest
+            signal(EnumSet.of(queueType));
+        }
+    }
+
+    public static class AssignmentMetrics {
+        private final boolean enabled;
+        private final long signals;
+        private final long passes;
+        private final long assigned;
+
+        public AssignmentMetrics(boolean enabled, long signals, long passes, long assigned) {
+            this.enabled = enabled;
+            this.signals = signals;
+            this.passes = passes;
+            this.assigned = assigned;
+        }
+
+        public boolean isEnabled() { return enabled; }
+        public long getSignals() { return signals; }
+        public long getPasses() { return passes; }
+        public long getAssigned() { return assigned; }
+    }
+}
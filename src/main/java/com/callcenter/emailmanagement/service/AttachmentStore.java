@@ -0,0 +1,342 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.AttachmentBlob;
+import com.callcenter.emailmanagement.domain.model.Email;
+import com.callcenter.emailmanagement.repository.AttachmentBlobRepository;
+import com.callcenter.emailmanagement.repository.EmailRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed attachment storage on local disk. Each attachment is streamed
+ * to a temporary file while its SHA-256 is computed, then moved to
+ * {@code <directory>/ab/cd/<hash>}; if that file already exists the copy is simply
+ * dropped, so a signature image that arrives ten thousand times is stored once.
+ *
+ * Emails reference blobs as {@code <hash>/<file name>}. Every persisted email
+ * holds one reference on each distinct blob it carries; blobs nobody references
+ * for {@code gc-grace-ms} (attachments of duplicates that were never persisted,
+ * and those of archived cases) are deleted by a scheduled collection.
+ *
+ * The blob rows live in the shared database but the files live on this node's
+ * disk, and a blob row says nothing about which node wrote it. Run a single node,
+ * or point every node's {@code directory} at the same shared volume; otherwise a
+ * node skips writing a blob another node already recorded, and its collection
+ * deletes files it never wrote.
+ */
+@Service
+public class AttachmentStore {
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentStore.class);
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    @Autowired
+    private AttachmentBlobRepository attachmentBlobRepository;
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Value("${app.email.attachments.directory:./data/attachments}")
+    private String attachmentDirectory;
+
+    @Value("${app.email.attachments.max-bytes:26214400}")
+    private long maxAttachmentBytes;
+
+    @Value("${app.email.attachments.gc-grace-ms:86400000}")
+    private long gcGraceMs;
+
+    @Value("${app.email.attachments.gc-batch-size:500}")
+    private int gcBatchSize;
+
+    private Path root;
+    private Path incoming;
+
+    // Striped by hash: finalizing a write and collecting the same blob never interleave
+    private final ReentrantLock[] stripes = new ReentrantLock[64];
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong bytesDeduplicated = new AtomicLong();
+    private final AtomicLong collected = new AtomicLong();
+
+    public AttachmentStore() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void initialize() throws IOException {
+        root = Paths.get(attachmentDirectory).toAbsolutePath().normalize();
+        incoming = root.resolve("incoming");
+        Files.createDirectories(incoming);
+        logger.info("📎 Attachment store at {}", root);
+    }
+
+    /**
+     * Stores the stream's bytes and returns the reference to keep on the email, or
+     * null if the attachment is larger than {@code max-bytes}.
+     */
+    public String store(InputStream in, String fileName, String contentType) throws IOException {
+        MessageDigest sha256 = sha256();
+        Path temp = Files.createTempFile(incoming, "attachment-", ".part");
+
+        long size = 0;
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                size += read;
+                if (size > maxAttachmentBytes) {
+                    break;
+                }
+                sha256.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        if (size > maxAttachmentBytes) {
+            Files.deleteIfExists(temp);
+            logger.warn("📎 Attachment {} exceeds {} bytes - not stored", fileName, maxAttachmentBytes);
+            return null;
+        }
+
+        String hash = HexFormat.of().formatHex(sha256.digest());
+        Path target = blobPath(hash);
+
+        ReentrantLock stripe = stripeFor(hash);
+        stripe.lock();
+        try {
+            if (Files.exists(target)) {
+                Files.delete(temp);
+                deduplicated.incrementAndGet();
+                bytesDeduplicated.addAndGet(size);
+                logger.debug("📎 Attachment {} already stored as {}", fileName, hash);
+            } else {
+                Files.createDirectories(target.getParent());
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                written.incrementAndGet();
+                logger.info("📎 Stored attachment {} as {} ({} bytes)", fileName, hash, size);
+            }
+            registerBlob(hash, size, contentType);
+        } finally {
+            stripe.unlock();
+        }
+
+        return hash + "/" + sanitize(fileName);
+    }
+
+    /**
+     * Takes a reference on each blob the email carries. Called in the transaction
+     * that first persists the email, so a rollback undoes it.
+     */
+    public void retain(Email email) {
+        Set<String> hashes = hashesOf(email.getAttachmentUrls());
+        if (!hashes.isEmpty()) {
+            attachmentBlobRepository.retain(hashes);
+        }
+    }
+
+    public void release(Email email) {
+        Set<String> hashes = hashesOf(email.getAttachmentUrls());
+        if (!hashes.isEmpty()) {
+            attachmentBlobRepository.release(hashes, LocalDateTime.now());
+        }
+    }
+
+    public Optional<StoredBlob> open(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+
+        Path path = blobPath(hash);
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+
+        Optional<AttachmentBlob> blob = attachmentBlobRepository.findById(hash);
+        try {
+            long size = blob.map(AttachmentBlob::getSize).orElse(Files.size(path));
+            return Optional.of(new StoredBlob(hash, path, size, blob.map(AttachmentBlob::getContentType).orElse(null)));
+        } catch (IOException e) {
+            logger.warn("📎 Attachment {} unreadable: {}", hash, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.email.attachments.gc-interval-ms:3600000}")
+    public void collectGarbage() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(gcGraceMs, ChronoUnit.MILLIS);
+        List<AttachmentBlob> candidates = attachmentBlobRepository.findUnreferencedSince(cutoff, PageRequest.of(0, gcBatchSize));
+
+        int removed = 0;
+        long freedBytes = 0;
+        for (AttachmentBlob candidate : candidates) {
+            ReentrantLock stripe = stripeFor(candidate.getHash());
+            stripe.lock();
+            try {
+                // Re-read under the lock: the blob may have been written again since the scan
+                Optional<AttachmentBlob> current = attachmentBlobRepository.findById(candidate.getHash());
+                if (current.isEmpty() || current.get().getRefCount() > 0 || !current.get().getLastReleasedDate().isBefore(cutoff)) {
+                    continue;
+                }
+                if (emailRepository.existsByAttachmentRefPrefix(candidate.getHash() + "/%")) {
+                    logger.warn("📎 Blob {} has no counted references but an email still points at it - kept", candidate.getHash());
+                    continue;
+                }
+
+                Files.deleteIfExists(blobPath(candidate.getHash()));
+                attachmentBlobRepository.delete(current.get());
+                removed++;
+                freedBytes += candidate.getSize();
+            } catch (IOException e) {
+                logger.warn("📎 Could not delete blob {}: {}", candidate.getHash(), e.getMessage());
+            } finally {
+                stripe.unlock();
+            }
+        }
+
+        if (removed > 0) {
+            collected.addAndGet(removed);
+            logger.info("🧹 Collected {} unreferenced attachments ({} bytes)", removed, freedBytes);
+        }
+    }
+
+    public AttachmentStoreMetrics getMetrics() {
+        Object[] summary = attachmentBlobRepository.summarize().get(0);
+        return new AttachmentStoreMetrics(((Number) summary[0]).longValue(), ((Number) summary[1]).longValue(),
+            ((Number) summary[2]).longValue(), written.get(), deduplicated.get(), bytesDeduplicated.get(), collected.get());
+    }
+
+    /**
+     * Hashes referenced by the given attachment refs. Refs from before the store
+     * was content-addressed ({@code <date>/<uuid>-<name>}) are ignored.
+     */
+    static Set<String> hashesOf(List<String> attachmentRefs) {
+        Set<String> hashes = new LinkedHashSet<>();
+        if (attachmentRefs == null) {
+            return hashes;
+        }
+        for (String ref : attachmentRefs) {
+            int slash = ref.indexOf('/');
+            String hash = slash > 0 ? ref.substring(0, slash) : ref;
+            if (HASH.matcher(hash).matches()) {
+                hashes.add(hash);
+            }
+        }
+        return hashes;
+    }
+
+    private void registerBlob(String hash, long size, String contentType) {
+        // An unreferenced blob written again starts its grace period over
+        if (attachmentBlobRepository.touchUnreferenced(hash, LocalDateTime.now()) > 0
+                || attachmentBlobRepository.existsById(hash)) {
+            return;
+        }
+        try {
+            attachmentBlobRepository.save(new AttachmentBlob(hash, size, contentType));
+        } catch (DataIntegrityViolationException e) {
+            logger.debug("📎 Blob {} registered concurrently", hash);
+        }
+    }
+
+    private Path blobPath(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private ReentrantLock stripeFor(String hash) {
+        return stripes[Integer.parseInt(hash.substring(0, 2), 16) % stripes.length];
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String sanitize(String fileName) {
+        String safe = fileName.replaceAll("[^A-Za-z0-9._-]", "_");
+        return safe.length() > 100 ? safe.substring(safe.length() - 100) : safe;
+    }
+
+    public static class StoredBlob {
+        private final String hash;
+        private final Path path;
+        private final long size;
+        private final String contentType;
+
+        public StoredBlob(String hash, Path path, long size, String contentType) {
+            this.hash = hash;
+            this.path = path;
+            this.size = size;
+            this.contentType = contentType;
+        }
+
+        public String getHash() { return hash; }
+        public Path getPath() { return path; }
+        public long getSize() { return size; }
+        public String getContentType() { return contentType; }
+    }
+
+    public static class AttachmentStoreMetrics {
+        private final long blobs;
+        private final long storedBytes;
+        private final long referencedBytes;
+        private final long written;
+        private final long deduplicated;
+        private final long bytesDeduplicated;
+        private final long collected;
+
+        public AttachmentStoreMetrics(long blobs, long storedBytes, long referencedBytes, long written,
+                                      long deduplicated, long bytesDeduplicated, long collected) {
+            this.blobs = blobs;
+            this.storedBytes = storedBytes;
+            this.referencedBytes = referencedBytes;
+            this.written = written;
+            this.deduplicated = deduplicated;
+            this.bytesDeduplicated = bytesDeduplicated;
+            this.collected = collected;
+        }
+
+        public long getBlobs() { return blobs; }
+        public long getStoredBytes() { return storedBytes; }
+        public long getReferencedBytes() { return referencedBytes; }
+        public long getWritten() { return written; }
+        public long getDeduplicated() { return deduplicated; }
+        public long getBytesDeduplicated() { return bytesDeduplicated; }
+        public long getCollected() { return collected; }
+    }
+}
@@ -0,0 +1,23 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.WorkQueue;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Case priority and queue type, as scored when the item is queued.
+ */
+@Component
+public class BasePriorityFactor implements PriorityFactor {
+
+    @Override
+    public String getName() {
+        return "base";
+    }
+
+    @Override
+    public int score(WorkQueue item, LocalDateTime now) {
+        return WorkQueue.baseScore(item.getCaseItem(), item.getQueueType());
+    }
+}
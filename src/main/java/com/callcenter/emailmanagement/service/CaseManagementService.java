@@ -3,14 +3,20 @@ package com.callcenter.emailmanagement.service;
 import com.callcenter.emailmanagement.domain.model.*;
 import com.callcenter.emailmanagement.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 public class CaseManagementService {
@@ -28,34 +34,187 @@ public class CaseManagementService {
     @Autowired
     private EmailRepository emailRepository;
     
+    @Autowired
+    private QueueClassifier queueClassifier;
+    
+    @Autowired
+    private EmailThreadingService emailThreadingService;
+    
+    @Autowired
+    private CaseNumberAllocator caseNumberAllocator;
+    
+    @Autowired
+    private EmailBurstDetector emailBurstDetector;
+    
+    @Autowired
+    private PriorityScoringEngine priorityScoringEngine;
+    
+    @Autowired
+    private AttachmentStore attachmentStore;
+
+    @Autowired
+    private HtmlTextExtractor htmlTextExtractor;
+    
+    @Autowired
+    private SearchIndexService searchIndexService;
+    
+    @Autowired
+    private AgentAvailabilityIndex agentAvailabilityIndex;
+    
+    @Autowired
+    private AssignmentDispatcher assignmentDispatcher;
+    
+    @Autowired
+    private OutboundMailService outboundMailService;
+
+    @Value("${app.email.body.classify-chars:20000}")
+    private int classifyChars;
+    
+    @Value("${app.cases.archive-after-days:90}")
+    private int archiveAfterDays;
+    
+    @Value("${app.cases.archive-batch-size:200}")
+    private int archiveBatchSize;
+    
+    @Transactional
     public Case createCaseFromEmail(Email email) {
         logger.info("Creating case from email: {}", email.getSubject());
         
+        return createCasesFromEmails(List.of(email)).get(0);
+    }
+    
+    /**
+     * Creates one case per email as a single unit of work. Emails, cases, SLA records
+     * and queue items are written as JDBC batches at commit, and agents are notified
+     * once per queue instead of once per case. Either every case in the batch is
+     * created or none is.
+     *
+     * Deferred emails are claimed first with a conditional update, so when several
+     * nodes admit the same backlog each email gets one case; the ones another node
+     * admitted are skipped and no case is returned for them.
+     */
+    @Transactional
+    public List<Case> createCasesFromEmails(List<Email> emails) {
+        List<Case> cases = new ArrayList<>(emails.size());
+        List<Email> attached = attach(emails);
+        
+        // All claims run before any case is built: each update flushes the session
+        List<Email> admitted = new ArrayList<>(attached.size());
+        for (int i = 0; i < attached.size(); i++) {
+            Email email = attached.get(i);
+            if (emails.get(i).getDeferredSince() != null
+                    && (email.getDeferredSince() == null || emailRepository.claimDeferred(email.getId()) == 0)) {
+                logger.debug("🚦 Deferred email {} was already admitted elsewhere", email.getMessageId());
+                continue;
+            }
+            admitted.add(email);
+        }
+        
+        for (Email email : admitted) {
+            if (email.getId() == null) {
+                attachmentStore.retain(email);
+            }
+            cases.add(buildCase(email));
+        }
+        
+        caseRepository.saveAll(cases);
+        slaTrackingService.initializeSlaTracking(cases);
+        workQueueService.addCasesToQueue(cases);
+        
+        for (Case savedCase : cases) {
+            Email email = savedCase.getEmails().get(0);
+            emailThreadingService.remember(email.getMessageId(), savedCase.getId());
+            emailBurstDetector.remember(email, savedCase.getId());
+            searchIndexService.indexCase(savedCase);
+            searchIndexService.indexEmail(email, savedCase);
+            logger.debug("📋 Case persisted: {} with email: {}", savedCase.getCaseNumber(), email.getMessageId());
+        }
+        
+        logger.info("✅ Created {} cases in one transaction", cases.size());
+        return cases;
+    }
+    
+    /**
+     * Emails saved earlier (deferred mail, the test endpoint) arrive detached. They
+     * are reloaded with one query so the case cascade can link them; new emails are
+     * persisted together with their case.
+     */
+    private List<Email> attach(List<Email> emails) {
+        List<Long> savedIds = new ArrayList<>();
+        for (Email email : emails) {
+            if (email.getId() != null) {
+                savedIds.add(email.getId());
+            }
+        }
+        
+        if (savedIds.isEmpty()) {
+            return emails;
+        }
+        
+        Map<Long, Email> managed = new HashMap<>();
+        for (Email email : emailRepository.findAllById(savedIds)) {
+            managed.put(email.getId(), email);
+        }
+        
+        List<Email> attached = new ArrayList<>(emails.size());
+        for (Email email : emails) {
+            if (email.getId() == null) {
+                attached.add(email);
+            } else {
+                Email loaded = managed.get(email.getId());
+                attached.add(loaded != null ? loaded : emailRepository.save(email));
+            }
+        }
+        return attached;
+    }
+    
+    private Case buildCase(Email email) {
         Case newCase = new Case();
-        newCase.setCaseNumber(generateCaseNumber());
+        newCase.setCaseNumber(caseNumberAllocator.nextCaseNumber());
         newCase.setCustomerEmail(email.getFromAddress());
         newCase.setSubject(email.getSubject());
         newCase.setDescription(extractDescription(email));
         newCase.setQueueType(determineQueueType(email));
         newCase.setPriority(determineCasePriority(email));
         
-        // Link email to case
+        if (email.getDeferredSince() != null) {
+            // Held back by admission control: the SLA clock starts when the email arrived
+            newCase.setCreatedDate(email.getReceivedDate() != null ? email.getReceivedDate() : email.getDeferredSince());
+            email.setDeferredSince(null);
+        }
+        
+        // Link email to case; the cascade persists new emails with the case
         newCase.addEmail(email);
         email.setEmailCase(newCase);
         
-        // Persist case to database
-        Case savedCase = caseRepository.save(newCase);
-        emailRepository.save(email);
-        
-        logger.info("📋 Case persisted: {} with email: {}", savedCase.getCaseNumber(), email.getMessageId());
+        return newCase;
+    }
+    
+    /**
+     * Adds a customer reply to the case it belongs to instead of opening a new one.
+     * A case waiting on the customer goes back to being worked.
+     */
+    @Transactional
+    public Case attachEmailToCase(Case caseEntity, Email email) {
+        if (email.getId() != null) {
+            email = emailRepository.save(email);
+        } else {
+            attachmentStore.retain(email);
+        }
         
-        // Initialize SLA tracking
-        slaTrackingService.initializeSlaTracking(savedCase);
+        // The case was looked up outside this transaction; load it again so its emails can be initialized
+        Case managedCase = caseRepository.findById(caseEntity.getId()).orElse(caseEntity);
+        managedCase.addEmail(email);
+        if (managedCase.getStatus() == Case.CaseStatus.PENDING_CUSTOMER) {
+            managedCase.setStatus(Case.CaseStatus.IN_PROGRESS);
+        }
         
-        // Add to work queue
-        workQueueService.addCaseToQueue(savedCase);
+        Case savedCase = caseRepository.save(managedCase);
+        emailRepository.save(email);
+        emailThreadingService.remember(email.getMessageId(), savedCase.getId());
+        searchIndexService.indexEmail(email, savedCase);
         
-        logger.info("✅ Case created successfully: {}", savedCase.getCaseNumber());
+        logger.info("🧵 Reply {} attached to case {}", email.getMessageId(), savedCase.getCaseNumber());
         return savedCase;
     }
     
@@ -70,6 +229,10 @@ public class CaseManagementService {
         // Update SLA tracking
         slaTrackingService.updateSlaStatus(caseEntity);
         
+        // Priority or customer may have changed; only this case's queue items move
+        priorityScoringEngine.rescoreCase(caseEntity.getId());
+        searchIndexService.indexCase(caseEntity);
+        
         logger.info("Case updated successfully: {}", caseEntity.getCaseNumber());
     }
     
@@ -103,6 +266,8 @@ public class CaseManagementService {
         if (caseEntity.getAssignedAgent() != null) {
             Agent agent = caseEntity.getAssignedAgent();
             agent.setCurrentCaseCount(Math.max(0, agent.getCurrentCaseCount() - 1));
+            agentAvailabilityIndex.released(agent.getId());
+            assignmentDispatcher.agentFreed(agent);
         }
         
         // Persist changes
@@ -125,20 +290,88 @@ public class CaseManagementService {
         return caseRepository.findByStatus(status);
     }
     
+    /**
+     * Puts a resolved, unarchived case back in its queue as NEW and unassigned, so whichever
+     * agent claims it next owns it; the previous agent's count was already
+     * released when the case was resolved. Each reopen raises the priority the
+     * case is queued with.
+     */
+    @Transactional
+    public Case reopenCase(Case caseEntity) {
+        Case managedCase = caseRepository.findById(caseEntity.getId()).orElse(caseEntity);
+        if (managedCase.getArchivedDate() != null) {
+            // Its attachments were released when it was archived
+            throw new IllegalStateException("Case " + managedCase.getCaseNumber() + " is archived and cannot be reopened");
+        }
+        
+        managedCase.setReopenCount(managedCase.getReopenCount() == null ? 1 : managedCase.getReopenCount() + 1);
+        managedCase.setStatus(Case.CaseStatus.NEW);
+        managedCase.setAssignedAgent(null);
+        managedCase.setResolvedDate(null);
+        managedCase.setLastModifiedDate(LocalDateTime.now());
+        
+        Case savedCase = caseRepository.save(managedCase);
+        workQueueService.addCaseToQueue(savedCase);
+        
+        logger.info("🔄 Case {} reopened ({} times)", savedCase.getCaseNumber(), savedCase.getReopenCount());
+        return savedCase;
+    }
+    
+    /**
+     * Queues an agent's reply and moves the case to IN_PROGRESS in one transaction,
+     * so the reply is only sent if the case and its first-response time were
+     * recorded with it, and a retried request cannot queue a second copy.
+     */
+    @Transactional
+    public Email respondToCase(Case caseEntity, Email response) {
+        Case managedCase = caseRepository.findById(caseEntity.getId()).orElse(caseEntity);
+        response.setEmailCase(managedCase);
+        
+        // Persist to the outbox, which assigns the RESPONSE Message-ID and threading headers
+        Email queued = outboundMailService.queueReply(response);
+        managedCase.addEmail(queued);
+        managedCase.setStatus(Case.CaseStatus.IN_PROGRESS);
+        caseRepository.save(managedCase);
+        
+        slaTrackingService.markFirstResponse(managedCase);
+        return queued;
+    }
+    
+    /**
+     * Closes cases resolved more than {@code app.cases.archive-after-days} ago and
+     * drops their attachments. The emails stay; their attachment references are
+     * released so the blobs can be garbage-collected.
+     */
+    @Scheduled(cron = "${app.cases.archive-cron:0 30 2 * * *}")
+    @Transactional
+    public void archiveResolvedCases() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(archiveAfterDays);
+        List<Case> resolved = caseRepository.findByStatusAndResolvedDateBefore(Case.CaseStatus.RESOLVED, cutoff,
+            PageRequest.of(0, archiveBatchSize));
+        
+        for (Case caseEntity : resolved) {
+            for (Email email : caseEntity.getEmails()) {
+                attachmentStore.release(email);
+                email.setAttachmentUrls(new ArrayList<>());
+            }
+            caseEntity.setStatus(Case.CaseStatus.CLOSED);
+            caseEntity.setArchivedDate(LocalDateTime.now());
+        }
+        
+        if (!resolved.isEmpty()) {
+            logger.info("🗄️ Archived {} cases resolved before {}", resolved.size(), cutoff.toLocalDate());
+        }
+    }
+    
     public Optional<Case> findByCaseNumber(String caseNumber) {
         logger.debug("Finding case by number: {}", caseNumber);
         
         return caseRepository.findByCaseNumber(caseNumber);
     }
     
-    private String generateCaseNumber() {
-        // Generate unique case number with prefix
-        return "CASE-" + LocalDateTime.now().getYear() + "-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-    }
-    
     private String extractDescription(Email email) {
         // Extract meaningful description from email content
-        String content = email.getTextContent() != null ? email.getTextContent() : email.getHtmlContent();
+        String content = plainText(email, 501);
         
         if (content != null && content.length() > 500) {
             return content.substring(0, 500) + "...";
@@ -147,19 +380,32 @@ public class CaseManagementService {
         return content;
     }
     
-    private WorkQueueType determineQueueType(Email email) {
-        // TODO: Implement intelligent queue routing based on email content
+    public WorkQueueType determineQueueType(Email email) {
+        if (email.getTargetQueueType() != null) {
+            return email.getTargetQueueType();
+        }
+        
         // TODO: Use ML/NLP for better classification
         
-        String subject = email.getSubject().toLowerCase();
-        String content = (email.getTextContent() != null ? email.getTextContent() : "").toLowerCase();
+        String content = plainText(email, classifyChars);
+        QueueClassifier.Classification classification = queueClassifier.classify(email.getSubject(), content);
         
-        if (subject.contains("bill") || subject.contains("payment") || subject.contains("invoice") ||
-            content.contains("billing") || content.contains("payment")) {
-            return WorkQueueType.BILLING_SUPPORT;
-        }
+        logger.debug("🧭 Classified '{}' as {} (score {}, matched {})", email.getSubject(),
+            classification.getQueueType(), classification.getScore(), classification.getMatchedKeywords());
         
-        return WorkQueueType.GENERAL_INQUIRY;
+        return classification.getQueueType();
+    }
+    
+    /**
+     * The text body, or for HTML-only emails the text of the HTML body without
+     * markup, hidden content or quoted history.
+     */
+    private String plainText(Email email, int maxChars) {
+        String text = email.getTextContent();
+        if (text != null && !text.isBlank()) {
+            return text;
+        }
+        return email.getHtmlContent() != null ? htmlTextExtractor.extract(email.getHtmlContent(), maxChars) : text;
     }
     
     private Case.CasePriority determineCasePriority(Email email) {
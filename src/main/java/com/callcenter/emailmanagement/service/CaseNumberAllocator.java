@@ -0,0 +1,195 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.IdBlock;
+import com.callcenter.emailmanagement.repository.IdBlockRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out case numbers such as {@code CASE-2026-00012345-A7}: the year, a
+ * zero-padded sequence value and the tag of the node that allocated it.
+ *
+ * Sequence values are reserved from the shared {@code id_blocks} row in blocks of
+ * {@code app.cases.number-block-size}, in a short transaction of their own, so
+ * two nodes never hand out the same value. Within a block a number costs one
+ * atomic increment. The next block is reserved in the background once half of
+ * the current one is used, so ingestion threads rarely wait on the database.
+ * Values increase monotonically on each node; a restart abandons the unused rest
+ * of the block, which leaves gaps but never duplicates.
+ */
+@Component
+public class CaseNumberAllocator {
+    private static final Logger logger = LoggerFactory.getLogger(CaseNumberAllocator.class);
+
+    private static final String SEQUENCE_NAME = "case-number";
+
+    @Autowired
+    private IdBlockRepository idBlockRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.cases.number-block-size:1000}")
+    private int blockSize;
+
+    @Value("${app.cases.node-id:}")
+    private String configuredNodeId;
+
+    private TransactionTemplate requiresNew;
+    private ExecutorService prefetchExecutor;
+    private String nodeId;
+
+    // A lock rather than synchronized: ingestion lanes are virtual threads and
+    // must not pin their carrier while waiting for a block
+    private final ReentrantLock refill = new ReentrantLock();
+
+    private volatile Block current = new Block(0, 0, 0);
+    private CompletableFuture<Block> next;   // guarded by refill
+
+    @PostConstruct
+    public void initialize() {
+        requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        prefetchExecutor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("case-number-prefetch").daemon().factory());
+
+        nodeId = configuredNodeId == null || configuredNodeId.isBlank()
+            ? hostnameTag()
+            : configuredNodeId.trim().toUpperCase(Locale.ROOT);
+        if (!nodeId.matches("[A-Z0-9]{1,4}")) {
+            throw new IllegalStateException("app.cases.node-id must be 1-4 letters or digits, got '" + nodeId + "'");
+        }
+
+        logger.info("🔢 Case numbers allocated as node {} in blocks of {}", nodeId, blockSize);
+    }
+
+    public String nextCaseNumber() {
+        long value = nextValue();
+
+        StringBuilder number = new StringBuilder(24).append("CASE-").append(Year.now().getValue()).append('-');
+        String digits = Long.toString(value);
+        for (int i = digits.length(); i < 8; i++) {
+            number.append('0');
+        }
+        return number.append(digits).append('-').append(nodeId).toString();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    long nextValue() {
+        while (true) {
+            Block block = current;
+            long value = block.cursor.getAndIncrement();
+            if (value < block.end) {
+                if (value == block.prefetchAt) {
+                    prefetch();
+                }
+                return value;
+            }
+            advance(block);
+        }
+    }
+
+    private void advance(Block exhausted) {
+        refill.lock();
+        try {
+            if (current != exhausted) {
+                return;   // another thread already moved on to the next block
+            }
+
+            CompletableFuture<Block> pending = next;
+            next = null;
+
+            Block block = null;
+            if (pending != null) {
+                try {
+                    block = pending.join();
+                } catch (CompletionException e) {
+                    logger.warn("⚠️ Background case number block reservation failed, retrying: {}", e.getMessage());
+                }
+            }
+            current = block != null ? block : reserveBlock();
+        } finally {
+            refill.unlock();
+        }
+    }
+
+    private void prefetch() {
+        refill.lock();
+        try {
+            if (next == null) {
+                next = CompletableFuture.supplyAsync(this::reserveBlock, prefetchExecutor);
+            }
+        } finally {
+            refill.unlock();
+        }
+    }
+
+    private Block reserveBlock() {
+        Long start;
+        try {
+            start = requiresNew.execute(status -> claimBlock());
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the counter row first; it exists now
+            start = requiresNew.execute(status -> claimBlock());
+        }
+
+        logger.debug("🔢 Reserved case numbers {}-{} for node {}", start, start + blockSize - 1, nodeId);
+        return new Block(start, start + blockSize, start + blockSize / 2);
+    }
+
+    private long claimBlock() {
+        IdBlock counter = idBlockRepository.findForUpdate(SEQUENCE_NAME)
+            .orElseGet(() -> idBlockRepository.saveAndFlush(new IdBlock(SEQUENCE_NAME, 1)));
+
+        long start = counter.getNextValue();
+        counter.setNextValue(start + blockSize);
+        counter.setLastAllocatedBy(nodeId);
+        counter.setLastAllocatedTime(LocalDateTime.now());
+        return start;
+    }
+
+    private static String hostnameTag() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "localhost";
+        }
+        String tag = Integer.toString(Math.floorMod(host.hashCode(), 36 * 36), 36).toUpperCase(Locale.ROOT);
+        return tag.length() == 1 ? "0" + tag : tag;
+    }
+
+    private static final class Block {
+        private final AtomicLong cursor;
+        private final long end;
+        private final long prefetchAt;
+
+        private Block(long start, long end, long prefetchAt) {
+            this.cursor = new AtomicLong(start);
+            this.end = end;
+            this.prefetchAt = prefetchAt;
+        }
+    }
+}
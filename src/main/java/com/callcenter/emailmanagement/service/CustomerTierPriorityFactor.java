@@ -0,0 +1,52 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.config.PriorityScoringProperties;
+import com.callcenter.emailmanagement.domain.model.WorkQueue;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Points for customers listed in {@code app.priority.tiers}, by address or by
+ * domain. A customer in several tiers gets the highest.
+ */
+@Component
+public class CustomerTierPriorityFactor implements PriorityFactor {
+
+    @Autowired
+    private PriorityScoringProperties properties;
+
+    private final Map<String, Integer> pointsByCustomer = new HashMap<>();
+
+    @PostConstruct
+    public void compile() {
+        for (PriorityScoringProperties.CustomerTier tier : properties.getTiers().values()) {
+            for (String customer : tier.getCustomers()) {
+                pointsByCustomer.merge(customer.trim().toLowerCase(Locale.ROOT), tier.getPoints(), Math::max);
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "tier";
+    }
+
+    @Override
+    public int score(WorkQueue item, LocalDateTime now) {
+        if (pointsByCustomer.isEmpty() || item.getCaseItem() == null) {
+            return 0;
+        }
+
+        String address = EmailProcessingPipeline.senderKey(item.getCaseItem().getCustomerEmail());
+        int at = address.lastIndexOf('@');
+        int byAddress = pointsByCustomer.getOrDefault(address, 0);
+        int byDomain = at >= 0 ? pointsByCustomer.getOrDefault(address.substring(at), 0) : 0;
+        return Math.max(byAddress, byDomain);
+    }
+}
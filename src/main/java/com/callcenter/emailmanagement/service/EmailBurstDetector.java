@@ -0,0 +1,255 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.Case;
+import com.callcenter.emailmanagement.domain.model.Email;
+import com.callcenter.emailmanagement.repository.CaseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Folds repeated copies of the same complaint into the case the first copy opened.
+ *
+ * Emails are keyed by normalized sender, a fingerprint of the subject (reply and
+ * forward prefixes, case, punctuation and whitespace ignored) and the same
+ * fingerprint of the start of the body, so two different questions sent under
+ * "Help" stay separate cases. Subjects whose fingerprint is shorter than
+ * {@code min-subject-length} are never folded. The key maps to the
+ * case it opened and the last time it was seen; each further copy inside
+ * {@code app.ingestion.burst.window-ms} of the previous one slides the window on.
+ * Entries are kept in last-seen order, so expired ones are pruned from the head and
+ * the index never holds more than {@code capacity} keys.
+ */
+@Service
+public class EmailBurstDetector {
+    private static final Logger logger = LoggerFactory.getLogger(EmailBurstDetector.class);
+
+    // Same prefix the case description is cut from, so warmed keys match live ones
+    private static final int BODY_PREFIX_CHARS = 500;
+
+    private static final Pattern REPLY_PREFIX = Pattern.compile("^(?:(?:re|fw|fwd|aw|wg|sv|antw)\\s*(?:\\[\\d+\\])?\\s*:\\s*)+");
+
+    @Autowired
+    private CaseRepository caseRepository;
+
+    @Autowired
+    private HtmlTextExtractor htmlTextExtractor;
+
+    @Value("${app.ingestion.burst.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.ingestion.burst.window-ms:600000}")
+    private long windowMs;
+
+    @Value("${app.ingestion.burst.capacity:50000}")
+    private int capacity;
+
+    @Value("${app.ingestion.burst.min-subject-length:4}")
+    private int minSubjectLength;
+
+    // Insertion order is last-seen order: a sighting is removed and re-added
+    private final Map<String, Sighting> recent = new LinkedHashMap<>();
+
+    private final AtomicLong suppressed = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmWindow() {
+        if (!enabled) {
+            return;
+        }
+
+        LocalDateTime since = LocalDateTime.now().minus(windowMs, ChronoUnit.MILLIS);
+        List<Case> openCases = caseRepository.findOpenCasesCreatedSince(since);
+        for (Case openCase : openCases) {
+            String key = key(openCase.getCustomerEmail(), openCase.getSubject(), openCase.getDescription());
+            if (key != null) {
+                record(key, openCase.getId(),
+                    openCase.getCreatedDate().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            }
+        }
+        logger.info("🔁 Burst window warmed with {} open cases from the last {} s", openCases.size(), windowMs / 1000);
+    }
+
+    /**
+     * Returns the open case a recent copy of this email opened, if the copy was seen
+     * within the window.
+     */
+    public Optional<Case> findOpenCase(Email email) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        String key = keyOf(email);
+        if (key == null) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+
+        Long caseId;
+        synchronized (recent) {
+            Sighting sighting = recent.get(key);
+            if (sighting == null || now - sighting.lastSeen > windowMs) {
+                return Optional.empty();
+            }
+            caseId = sighting.caseId;
+        }
+
+        Optional<Case> existing = caseRepository.findById(caseId);
+        if (existing.isEmpty() || existing.get().getStatus() == Case.CaseStatus.RESOLVED
+                || existing.get().getStatus() == Case.CaseStatus.CLOSED) {
+            synchronized (recent) {
+                recent.remove(key);
+            }
+            return Optional.empty();
+        }
+
+        record(key, caseId, now);
+        return existing;
+    }
+
+    /**
+     * Counts an email that was folded into an existing case instead of opening one.
+     */
+    public void recordSuppressed(Email email, Case existingCase) {
+        long total = suppressed.incrementAndGet();
+        logger.info("🔁 Folded repeat of '{}' from {} into case {} ({} suppressed so far)",
+            email.getSubject(), email.getFromAddress(), existingCase.getCaseNumber(), total);
+    }
+
+    public void remember(Email email, Long caseId) {
+        if (!enabled || caseId == null) {
+            return;
+        }
+        String key = keyOf(email);
+        if (key != null) {
+            record(key, caseId, System.currentTimeMillis());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The burst key for the email, or {@code null} when its subject is too generic
+     * to fold on.
+     */
+    public String keyOf(Email email) {
+        String body = email.getTextContent();
+        if ((body == null || body.isBlank()) && email.getHtmlContent() != null) {
+            body = htmlTextExtractor.extract(email.getHtmlContent(), BODY_PREFIX_CHARS + 1);
+        }
+        return key(email.getFromAddress(), email.getSubject(), body);
+    }
+
+    public BurstMetrics getMetrics() {
+        int tracked;
+        synchronized (recent) {
+            tracked = recent.size();
+        }
+        return new BurstMetrics(enabled, windowMs, tracked, capacity, suppressed.get());
+    }
+
+    /**
+     * Normalizes a subject so "RE: Fwd:  Refund NOT received!!" and "refund not
+     * received" share a fingerprint.
+     */
+    static String fingerprint(String subject) {
+        if (subject == null) {
+            return "";
+        }
+
+        String normalized = REPLY_PREFIX.matcher(subject.trim().toLowerCase(Locale.ROOT)).replaceFirst("");
+
+        StringBuilder fingerprint = new StringBuilder(normalized.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && fingerprint.length() > 0) {
+                    fingerprint.append(' ');
+                }
+                fingerprint.append(c);
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return fingerprint.toString();
+    }
+
+    private String key(String fromAddress, String subject, String body) {
+        String subjectFingerprint = fingerprint(subject);
+        if (subjectFingerprint.length() < minSubjectLength) {
+            return null;
+        }
+        if (body != null && body.length() > BODY_PREFIX_CHARS) {
+            body = body.substring(0, BODY_PREFIX_CHARS);
+        }
+        return EmailProcessingPipeline.senderKey(fromAddress) + '\n' + subjectFingerprint + '\n' + fingerprint(body);
+    }
+
+    private void record(String key, Long caseId, long seenAt) {
+        synchronized (recent) {
+            recent.remove(key);
+            recent.put(key, new Sighting(caseId, seenAt));
+
+            Iterator<Sighting> oldest = recent.values().iterator();
+            while (oldest.hasNext()) {
+                Sighting sighting = oldest.next();
+                if (recent.size() <= capacity && seenAt - sighting.lastSeen <= windowMs) {
+                    break;
+                }
+                oldest.remove();
+            }
+        }
+    }
+
+    private static final class Sighting {
+        private final Long caseId;
+        private final long lastSeen;
+
+        private Sighting(Long caseId, long lastSeen) {
+            this.caseId = caseId;
+            this.lastSeen = lastSeen;
+        }
+    }
+
+    public static class BurstMetrics {
+        private final boolean enabled;
+        private final long windowMs;
+        private final int tracked;
+        private final int capacity;
+        private final long suppressed;
+
+        public BurstMetrics(boolean enabled, long windowMs, int tracked, int capacity, long suppressed) {
+            this.enabled = enabled;
+            this.windowMs = windowMs;
+            this.tracked = tracked;
+            this.capacity = capacity;
+            this.suppressed = suppressed;
+        }
+
+        public boolean isEnabled() { return enabled; }
+        public long getWindowMs() { return windowMs; }
+        public int getTracked() { return tracked; }
+        public int getCapacity() { return capacity; }
+        public long getSuppressed() { return suppressed; }
+    }
+}
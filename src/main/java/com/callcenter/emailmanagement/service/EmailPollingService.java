@@ -1,14 +1,19 @@
 package com.callcenter.emailmanagement.service;
 
-import com.callcenter.emailmanagement.domain.model.Email;
-import com.callcenter.emailmanagement.domain.model.Case;
-import com.callcenter.emailmanagement.repository.EmailRepository;
+import com.callcenter.emailmanagement.config.DistributionListProperties;
+import com.callcenter.emailmanagement.config.DistributionListProperties.DistributionList;
+import com.callcenter.emailmanagement.domain.model.WorkQueueType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -19,60 +24,113 @@ public class EmailPollingService {
     private OutlookEmailService outlookEmailService;
     
     @Autowired
-    private EmailRepository emailRepository;
+    private EmailProcessingPipeline emailProcessingPipeline;
     
     @Autowired
-    private CaseManagementService caseManagementService;
+    private MessageDeduplicationService messageDeduplicationService;
     
-    @Scheduled(fixedRate = 30000) // Every 30 seconds
-    public void pollForNewEmails() {
-        logger.info("🔍 Polling for new emails...");
-        
-        try {
-            List<Email> newEmails = outlookEmailService.fetchEmailsFromFolder("INBOX");
-            
-            if (newEmails.isEmpty()) {
-                logger.debug("📭 No new emails found");
-                return;
+    @Autowired
+    private DistributionListProperties distributionListProperties;
+    
+    @Value("${app.email.username}")
+    private String emailUsername;
+    
+    @Value("${app.email.password}")
+    private String emailPassword;
+    
+    @Value("${app.email.host:outlook.office365.com}")
+    private String emailHost;
+    
+    @Value("${app.email.port:993}")
+    private int emailPort;
+    
+    @Value("${app.email.poll-interval-ms:30000}")
+    private long defaultPollIntervalMs;
+    
+    @Value("${app.email.idle.enabled:true}")
+    private boolean idleEnabled;
+    
+    @Value("${app.email.idle.initial-backoff-ms:1000}")
+    private long idleInitialBackoffMs;
+    
+    @Value("${app.email.idle.max-backoff-ms:300000}")
+    private long idleMaxBackoffMs;
+    
+    @Value("${app.email.idle.renew-interval-ms:1200000}")
+    private long idleRenewIntervalMs;
+    
+    @Value("${app.ingestion.max-attempts:3}")
+    private int maxAttempts;
+    
+    private final List<MailboxIngestionWorker> workers = new ArrayList<>();
+    
+    /**
+     * A list with a username and password is its own mailbox and gets its own
+     * worker. A list with neither is delivered into the main mailbox and routed by
+     * recipient address. Anything in between would log in with the wrong
+     * credentials, so it stops startup.
+     */
+    @PostConstruct
+    public void validateDistributionLists() {
+        for (DistributionList list : distributionListProperties.getDistributionLists()) {
+            if (list.getAddress() == null || list.getAddress().isBlank()) {
+                throw new IllegalStateException("Distribution list '" + list.getName() + "' has no address");
             }
-            
-            logger.info("📧 Found {} new emails to process", newEmails.size());
-            
-            for (Email email : newEmails) {
-                processNewEmail(email);
+            if ((list.getUsername() == null) != (list.getPassword() == null)) {
+                throw new IllegalStateException("Distribution list '" + list.getName() +
+                    "' needs both username and password to be read as its own mailbox, or neither to be routed from the main INBOX");
             }
-            
-        } catch (Exception e) {
-            logger.error("❌ Error during email polling: {}", e.getMessage(), e);
         }
     }
     
-    private void processNewEmail(Email email) {
-        logger.info("📨 Processing new email: '{}' from {}", email.getSubject(), email.getFromAddress());
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWorkers() {
+        // The main account's INBOX is always ingested; list mail delivered there is routed by recipient
+        workers.add(createWorker("INBOX", new ImapConnection(emailHost, emailPort, emailUsername, emailPassword),
+            "INBOX", null, defaultPollIntervalMs));
         
-        try {
-            // Check if email already exists
-            if (emailRepository.findByMessageId(email.getMessageId()).isPresent()) {
-                logger.debug("📧 Email already processed: {}", email.getMessageId());
-                return;
+        for (DistributionList list : distributionListProperties.getDistributionLists()) {
+            if (list.getUsername() == null) {
+                logger.info("📫 Distribution list '{}' ({}) is routed from the main INBOX by recipient", list.getName(), list.getAddress());
+                continue;
             }
+            ImapConnection connection = new ImapConnection(
+                list.getHost() != null ? list.getHost() : emailHost,
+                list.getPort() != null ? list.getPort() : emailPort,
+                list.getUsername(),
+                list.getPassword());
             
-            // Save email first
-            Email savedEmail = emailRepository.save(email);
-            logger.info("💾 Email saved to database: {}", savedEmail.getMessageId());
-            
-            // Create case from email
-            Case newCase = caseManagementService.createCaseFromEmail(savedEmail);
-            logger.info("📋 Case created: {} for email: {}", newCase.getCaseNumber(), savedEmail.getSubject());
-            
-            // Log the complete flow
-            logger.info("✅ Email processing completed:");
-            logger.info("   📧 Email: {} (ID: {})", savedEmail.getSubject(), savedEmail.getMessageId());
-            logger.info("   📋 Case: {} (Status: {})", newCase.getCaseNumber(), newCase.getStatus());
-            logger.info("   🎯 Queue: {} (Priority: {})", newCase.getQueueType(), newCase.getPriority());
-            
-        } catch (Exception e) {
-            logger.error("❌ Error processing email {}: {}", email.getSubject(), e.getMessage(), e);
+            workers.add(createWorker(list.getName(), connection, list.getFolder(), list.getQueueType(),
+                list.getPollIntervalMs() != null ? list.getPollIntervalMs() : defaultPollIntervalMs));
         }
+        
+        for (MailboxIngestionWorker worker : workers) {
+            worker.start(idleEnabled, idleInitialBackoffMs, idleMaxBackoffMs);
+        }
+        
+        logger.info("📫 Started {} mailbox ingestion workers (IMAP IDLE {})", workers.size(), idleEnabled ? "enabled" : "disabled");
+    }
+    
+    @PreDestroy
+    public void stopWorkers() {
+        workers.forEach(MailboxIngestionWorker::stop);
+    }
+    
+    /**
+     * Triggers an immediate poll of every mailbox instead of waiting for the schedule.
+     */
+    public void pollForNewEmails() {
+        workers.forEach(MailboxIngestionWorker::wake);
+    }
+    
+    public List<MailboxIngestionWorker.MailboxStatus> getMailboxStatuses() {
+        return workers.stream().map(MailboxIngestionWorker::getStatus).toList();
+    }
+    
+    private MailboxIngestionWorker createWorker(String name, ImapConnection connection, String folder,
+                                                WorkQueueType queueType,
+                                                long pollIntervalMs) {
+        return new MailboxIngestionWorker(name, connection, folder, queueType, pollIntervalMs, idleRenewIntervalMs, maxAttempts,
+            outlookEmailService, messageDeduplicationService, emailProcessingPipeline);
     }
-}
\ No newline at end of file
+}
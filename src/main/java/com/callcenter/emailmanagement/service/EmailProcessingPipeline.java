@@ -0,0 +1,413 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.Case;
+import com.callcenter.emailmanagement.domain.model.Email;
+import com.callcenter.emailmanagement.domain.model.WorkQueueType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Processes inbound emails concurrently on virtual threads.
+ *
+ * Emails are partitioned into a fixed number of lanes by sender, and each lane is
+ * drained by a single virtual thread, so mail from one customer is always handled
+ * in arrival order while different customers proceed in parallel. Lanes are
+ * bounded: when they fill up {@link #submit(Email)} blocks, which holds the poller
+ * back instead of letting work pile up in memory. A lane takes everything already
+ * waiting (up to the batch size) and creates those cases in one transaction.
+ *
+ * Emails submitted with a {@link Outcome} report back once they are stored (as a
+ * case, a reply, a folded copy or a deferral) or have failed, so callers can
+ * tell which mail is safely in the database.
+ */
+@Service
+public class EmailProcessingPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(EmailProcessingPipeline.class);
+
+    @Autowired
+    private CaseManagementService caseManagementService;
+
+    @Autowired
+    private MessageDeduplicationService messageDeduplicationService;
+
+    @Autowired
+    private QueueAdmissionService queueAdmissionService;
+
+    @Autowired
+    private EmailThreadingService emailThreadingService;
+
+    @Autowired
+    private EmailBurstDetector emailBurstDetector;
+
+    @Value("${app.ingestion.lanes:8}")
+    private int laneCount;
+
+    @Value("${app.ingestion.lane-capacity:256}")
+    private int laneCapacity;
+
+    @Value("${app.ingestion.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.ingestion.shutdown-timeout-ms:30000}")
+    private long shutdownTimeoutMs;
+
+    private Lane[] lanes;
+
+    // Keyed by identity; Email does not override equals
+    private final Map<Email, Outcome> outcomes = new ConcurrentHashMap<>();
+
+    private volatile boolean accepting = true;
+
+    private final AtomicInteger persisting = new AtomicInteger();
+    private final AtomicInteger creatingCases = new AtomicInteger();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong backpressureWaits = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicLong threaded = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i, laneCapacity);
+            lanes[i].thread = Thread.ofVirtual().name("email-lane-" + i).start(lanes[i]);
+        }
+        logger.info("🚦 Email pipeline started with {} lanes (capacity {} each)", laneCount, laneCapacity);
+    }
+
+    @PreDestroy
+    public void stop() {
+        accepting = false;
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMs;
+
+        for (Lane lane : lanes) {
+            try {
+                long remaining = Math.max(1, deadline - System.currentTimeMillis());
+                if (!lane.thread.join(Duration.ofMillis(remaining))) {
+                    lane.thread.interrupt();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        logger.info("🛑 Email pipeline stopped ({} processed, {} failed)", processed.get(), failed.get());
+    }
+
+    /**
+     * Hands an email to the lane that owns its sender. Blocks while that lane is full.
+     */
+    public void submit(Email email) throws InterruptedException {
+        submit(email, null);
+    }
+
+    /**
+     * As {@link #submit(Email)}, reporting to {@code outcome} once the email is
+     * stored or has failed.
+     */
+    public void submit(Email email, Outcome outcome) throws InterruptedException {
+        if (!accepting) {
+            throw new IllegalStateException("Email pipeline is shutting down");
+        }
+        if (outcome != null) {
+            outcomes.put(email, outcome);
+        }
+
+        Lane lane = lanes[Math.floorMod(senderKey(email.getFromAddress()).hashCode(), lanes.length)];
+
+        if (!lane.queue.offer(email)) {
+            backpressureWaits.incrementAndGet();
+            logger.warn("⏳ Lane {} is full ({} queued) - waiting for downstream stages", lane.index, lane.queue.size());
+            lane.queue.put(email);
+        }
+    }
+
+    public PipelineMetrics getMetrics() {
+        int queued = 0;
+        int deepestLane = 0;
+        for (Lane lane : lanes) {
+            int depth = lane.queue.size();
+            queued += depth;
+            deepestLane = Math.max(deepestLane, depth);
+        }
+
+        return new PipelineMetrics(lanes.length, laneCapacity, queued, deepestLane,
+            persisting.get(), creatingCases.get(), processed.get(), failed.get(), backpressureWaits.get(), deferred.get(), threaded.get(),
+            suppressed.get());
+    }
+
+    private void process(List<Email> batch) {
+        List<Email> newCases = new ArrayList<>(batch.size());
+        List<Email> repeats = new ArrayList<>();
+        Set<String> openingKeys = new HashSet<>();
+        Map<Email, WorkQueueType> reservations = new HashMap<>();
+
+        persisting.addAndGet(batch.size());
+        try {
+            for (Email email : batch) {
+                logger.info("📨 Processing new email: '{}' from {}", email.getSubject(), email.getFromAddress());
+                try {
+                    String burstKey = emailBurstDetector.isEnabled() ? emailBurstDetector.keyOf(email) : null;
+                    if (burstKey != null && openingKeys.contains(burstKey)) {
+                        // An earlier copy in this batch is about to open the case; fold in afterwards
+                        repeats.add(email);
+                    } else if (needsNewCase(email, reservations)) {
+                        newCases.add(email);
+                        if (burstKey != null) {
+                            openingKeys.add(burstKey);
+                        }
+                    } else {
+                        settled(email, true);
+                    }
+                } catch (Exception e) {
+                    recordFailure(email, e);
+                }
+            }
+        } finally {
+            persisting.addAndGet(-batch.size());
+        }
+
+        if (!newCases.isEmpty()) {
+            createCases(newCases, reservations);
+        }
+
+        for (Email repeat : repeats) {
+            try {
+                if (needsNewCase(repeat, reservations)) {
+                    createSingleCase(repeat, reservations);
+                } else {
+                    settled(repeat, true);
+                }
+            } catch (Exception e) {
+                recordFailure(repeat, e);
+            }
+        }
+    }
+
+    private void createCases(List<Email> newCases, Map<Email, WorkQueueType> reservations) {
+        creatingCases.addAndGet(newCases.size());
+        try {
+            List<Case> cases = caseManagementService.createCasesFromEmails(newCases);
+            processed.addAndGet(cases.size());
+            newCases.forEach(email -> settled(email, true));
+
+            for (Case newCase : cases) {
+                logger.info("✅ Email processed: {} -> {} ({} queue, {} priority)", newCase.getEmails().get(0).getMessageId(),
+                    newCase.getCaseNumber(), newCase.getQueueType(), newCase.getPriority());
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Usually two pollers racing on one Message-ID, but any constraint can fail the
+            // batch. Retry one by one so only the offending email is dropped or failed.
+            logger.info("📧 Batch hit a constraint violation, retrying {} emails individually: {}",
+                newCases.size(), e.getMostSpecificCause().getMessage());
+            for (Email email : newCases) {
+                createSingleCase(email, reservations);
+            }
+        } catch (Exception e) {
+            // No case was created, so hand back the queue slots needsNewCase reserved
+            newCases.forEach(email -> releaseReservation(email, reservations));
+            newCases.forEach(email -> recordFailure(email, e));
+        } finally {
+            creatingCases.addAndGet(-newCases.size());
+        }
+    }
+
+    /**
+     * Routes replies and repeated copies onto their open case and defers mail for
+     * full queues. Returns
+     * true when the email still needs a case of its own, with the queue slot it
+     * reserved recorded in {@code reservations}.
+     */
+    private boolean needsNewCase(Email email, Map<Email, WorkQueueType> reservations) {
+        Optional<Case> existingCase = emailThreadingService.findOpenCase(email);
+        if (existingCase.isPresent()) {
+            // A reply on an open case needs no new case, queue item or SLA timer
+            caseManagementService.attachEmailToCase(existingCase.get(), email);
+            threaded.incrementAndGet();
+            processed.incrementAndGet();
+            return false;
+        }
+
+        Optional<Case> burstCase = emailBurstDetector.findOpenCase(email);
+        if (burstCase.isPresent()) {
+            // Same sender, subject and opening text, moments apart: one case is enough
+            caseManagementService.attachEmailToCase(burstCase.get(), email);
+            emailBurstDetector.recordSuppressed(email, burstCase.get());
+            suppressed.incrementAndGet();
+            processed.incrementAndGet();
+            return false;
+        }
+
+        WorkQueueType queueType = caseManagementService.determineQueueType(email);
+        if (!queueAdmissionService.tryAdmit(queueType)) {
+            queueAdmissionService.defer(email, queueType);
+            deferred.incrementAndGet();
+            return false;
+        }
+
+        reservations.put(email, queueType);
+        return true;
+    }
+
+    private void createSingleCase(Email email, Map<Email, WorkQueueType> reservations) {
+        // Ids assigned during the rolled-back batch were never committed
+        email.resetIds();
+        email.setEmailCase(null);
+        try {
+            caseManagementService.createCaseFromEmail(email);
+            processed.incrementAndGet();
+            settled(email, true);
+        } catch (Exception e) {
+            releaseReservation(email, reservations);
+            recordFailure(email, e);
+        }
+    }
+
+    private void releaseReservation(Email email, Map<Email, WorkQueueType> reservations) {
+        WorkQueueType queueType = reservations.remove(email);
+        if (queueType != null) {
+            queueAdmissionService.release(queueType);
+        }
+    }
+
+    private void recordFailure(Email email, Exception e) {
+        // Only the Message-ID unique key means another poller stored it first
+        if (e instanceof DataIntegrityViolationException && messageDeduplicationService.isStored(email.getMessageId())) {
+            logger.debug("📧 Email already processed: {}", email.getMessageId());
+            settled(email, true);
+            return;
+        }
+        failed.incrementAndGet();
+        messageDeduplicationService.forget(email.getMessageId());
+        logger.error("❌ Error processing email {}: {}", email.getSubject(), e.getMessage(), e);
+        settled(email, false);
+    }
+
+    private void settled(Email email, boolean stored) {
+        Outcome outcome = outcomes.remove(email);
+        if (outcome != null) {
+            outcome.settled(email, stored);
+        }
+    }
+
+    /**
+     * Normalizes "Jane Doe <Jane@Example.com>" and "jane@example.com" to the same key.
+     */
+    static String senderKey(String fromAddress) {
+        if (fromAddress == null) {
+            return "";
+        }
+        int start = fromAddress.lastIndexOf('<');
+        int end = fromAddress.lastIndexOf('>');
+        String address = start >= 0 && end > start ? fromAddress.substring(start + 1, end) : fromAddress;
+        return address.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Told once an email is stored, or has failed and been released for a later
+     * fetch to retry.
+     */
+    public interface Outcome {
+        void settled(Email email, boolean stored);
+    }
+
+    private class Lane implements Runnable {
+        private final int index;
+        private final BlockingQueue<Email> queue;
+        private Thread thread;
+
+        Lane(int index, int capacity) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<Email> batch = new ArrayList<>(batchSize);
+                while (accepting || !queue.isEmpty()) {
+                    Email email = queue.poll(500, TimeUnit.MILLISECONDS);
+                    if (email != null) {
+                        // Whatever else is already waiting goes into the same unit of work
+                        batch.add(email);
+                        queue.drainTo(batch, batchSize - 1);
+                        process(batch);
+                        batch.clear();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Lane {} interrupted with {} emails still queued", index, queue.size());
+            }
+        }
+    }
+
+    public static class PipelineMetrics {
+        private final int lanes;
+        private final int laneCapacity;
+        private final int queued;
+        private final int deepestLane;
+        private final int persisting;
+        private final int creatingCases;
+        private final long processed;
+        private final long failed;
+        private final long backpressureWaits;
+        private final long deferred;
+        private final long threaded;
+        private final long suppressed;
+
+        public PipelineMetrics(int lanes, int laneCapacity, int queued, int deepestLane, int persisting,
+                               int creatingCases, long processed, long failed, long backpressureWaits, long deferred,
+                               long threaded, long suppressed) {
+            this.lanes = lanes;
+            this.laneCapacity = laneCapacity;
+            this.queued = queued;
+            this.deepestLane = deepestLane;
+            this.persisting = persisting;
+            this.creatingCases = creatingCases;
+            this.processed = processed;
+            this.failed = failed;
+            this.backpressureWaits = backpressureWaits;
+            this.deferred = deferred;
+            this.threaded = threaded;
+            this.suppressed = suppressed;
+        }
+
+        public int getLanes() { return lanes; }
+        public int getLaneCapacity() { return laneCapacity; }
+        public int getQueued() { return queued; }
+        public int getDeepestLane() { return deepestLane; }
+        public int getPersisting() { return persisting; }
+        public int getCreatingCases() { return creatingCases; }
+        public long getProcessed() { return processed; }
+        public long getFailed() { return failed; }
+        public long getBackpressureWaits() { return backpressureWaits; }
+        public long getDeferred() { return deferred; }
+        public long getThreaded() { return threaded; }
+        public long getSuppressed() { return suppressed; }
+    }
+}
@@ -0,0 +1,189 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.Case;
+import com.callcenter.emailmanagement.domain.model.Email;
+import com.callcenter.emailmanagement.repository.CaseRepository;
+import com.callcenter.emailmanagement.repository.EmailRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the case a reply belongs to. The In-Reply-To and References headers are
+ * resolved through a bounded, LRU-ordered messageId to case id cache; misses are
+ * looked up in one query against the unique (and therefore indexed)
+ * {@code emails.message_id} column. Both inbound Message-IDs and the ids we put on
+ * outbound replies are recorded, so a customer answering an agent's reply threads
+ * onto the same case.
+ *
+ * A reply only joins a case when it comes from the case's customer or from
+ * someone who has already written to the case. Message-IDs travel in quoted mail
+ * and are easy to copy, so anyone else citing one gets a new case instead.
+ */
+@Service
+public class EmailThreadingService {
+    private static final Logger logger = LoggerFactory.getLogger(EmailThreadingService.class);
+
+    private static final Pattern MESSAGE_ID = Pattern.compile("<[^<>\\s]+>");
+
+    // References grows with every message in a thread; only the most recent ids are kept
+    private static final int MAX_REFERENCES = 20;
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Autowired
+    private CaseRepository caseRepository;
+
+    @Value("${app.threading.cache-capacity:50000}")
+    private int cacheCapacity;
+
+    private Map<String, Long> caseIdsByMessageId;
+
+    @PostConstruct
+    public void initialize() {
+        caseIdsByMessageId = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the open case the email replies to, if any. In-Reply-To is tried
+     * first, then References from the most recent id backwards.
+     */
+    public Optional<Case> findOpenCase(Email email) {
+        List<String> candidates = new ArrayList<>(parseMessageIds(email.getInReplyTo()));
+        List<String> references = parseMessageIds(email.getReferences());
+        for (int i = references.size() - 1; i >= 0; i--) {
+            if (!candidates.contains(references.get(i))) {
+                candidates.add(references.get(i));
+            }
+        }
+
+        if (candidates.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Map<String, Long> resolved = resolveCaseIds(candidates);
+
+        for (String candidate : candidates) {
+            Long caseId = resolved.get(candidate);
+            if (caseId == null) {
+                continue;
+            }
+
+            Optional<Case> existing = caseRepository.findById(caseId);
+            if (existing.isPresent() && isOpen(existing.get())) {
+                if (!isParticipant(existing.get(), email.getFromAddress())) {
+                    logger.warn("🧵 {} from {} cites case {} but is not from a participant - opening a new case",
+                        email.getMessageId(), email.getFromAddress(), existing.get().getCaseNumber());
+                    return Optional.empty();
+                }
+                logger.debug("🧵 {} threads onto case {} via {}", email.getMessageId(), existing.get().getCaseNumber(), candidate);
+                return existing;
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    public void remember(String messageId, Long caseId) {
+        if (messageId == null || caseId == null) {
+            return;
+        }
+        synchronized (caseIdsByMessageId) {
+            caseIdsByMessageId.put(messageId, caseId);
+        }
+    }
+
+    /**
+     * Builds the References value for a reply to {@code parent}: the parent's own
+     * references followed by its Message-ID, trimmed to the most recent ids.
+     */
+    public static String referencesFor(Email parent) {
+        List<String> ids = parseMessageIds(parent.getReferences());
+        ids.add(parent.getMessageId());
+        if (ids.size() > MAX_REFERENCES) {
+            ids = ids.subList(ids.size() - MAX_REFERENCES, ids.size());
+        }
+        return String.join(" ", ids);
+    }
+
+    public static List<String> parseMessageIds(String header) {
+        List<String> ids = new ArrayList<>();
+        if (header == null || header.isBlank()) {
+            return ids;
+        }
+        Matcher matcher = MESSAGE_ID.matcher(header);
+        while (matcher.find()) {
+            ids.add(matcher.group());
+        }
+        return ids;
+    }
+
+    private Map<String, Long> resolveCaseIds(List<String> messageIds) {
+        Map<String, Long> resolved = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+
+        synchronized (caseIdsByMessageId) {
+            for (String messageId : messageIds) {
+                Long caseId = caseIdsByMessageId.get(messageId);
+                if (caseId != null) {
+                    resolved.put(messageId, caseId);
+                } else {
+                    misses.add(messageId);
+                }
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            for (Object[] row : emailRepository.findCaseIdsByMessageIds(misses)) {
+                String messageId = (String) row[0];
+                Long caseId = (Long) row[1];
+                resolved.put(messageId, caseId);
+                remember(messageId, caseId);
+            }
+        }
+
+        return resolved;
+    }
+
+    /**
+     * The case's customer, or anyone who has sent mail on the case before (a
+     * colleague the customer copied in, say).
+     */
+    private boolean isParticipant(Case existing, String fromAddress) {
+        String sender = EmailProcessingPipeline.senderKey(fromAddress);
+        if (sender.isEmpty()) {
+            return false;
+        }
+        if (sender.equals(EmailProcessingPipeline.senderKey(existing.getCustomerEmail()))) {
+            return true;
+        }
+        for (String participant : emailRepository.findInboundSendersByCaseId(existing.getId())) {
+            if (sender.equals(EmailProcessingPipeline.senderKey(participant))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isOpen(Case existing) {
+        return existing.getStatus() != Case.CaseStatus.RESOLVED && existing.getStatus() != Case.CaseStatus.CLOSED;
+    }
+}
@@ -0,0 +1,378 @@
+package com.callcenter.emailmanagement.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns an HTML body into readable plain text in a single forward scan, without
+ * building a DOM. Tags are dropped, block-level tags become line breaks, entities
+ * are decoded and whitespace is collapsed as it is written. The content of
+ * script, style, head and similar elements is skipped, as are comments.
+ *
+ * Quoted history is cut off: a {@code <blockquote>} is skipped whole, and the
+ * reply containers mail clients wrap the previous message in (Gmail's
+ * {@code gmail_quote}, Outlook's {@code divRplyFwdMsg}, Thunderbird's
+ * {@code moz-cite-prefix}, ...) end the text, as does an "On ... wrote:" or
+ * "Original Message" line. Scanning stops once {@code maxChars} have been written,
+ * so a 200 KB newsletter costs no more than its first screen.
+ */
+@Component
+public class HtmlTextExtractor {
+
+    // Elements whose content is never text a customer wrote
+    private static final String[] SKIPPED_ELEMENTS = {
+        "script", "style", "head", "title", "noscript", "template", "svg", "xml", "object"
+    };
+
+    // Attribute values that mark the start of the quoted previous message
+    private static final String[] QUOTE_MARKERS = {
+        "gmail_quote", "divrplyfwdmsg", "moz-cite-prefix", "yahoo_quoted", "olk_src_body_section", "appendonsend"
+    };
+
+    private static final Pattern QUOTE_HEADER = Pattern.compile(
+        "(?m)^(?:On\\s[^\\n]{1,200}\\swrote:|-{2,}\\s*Original Message\\s*-{2,}|_{10,}\\s*$)");
+
+    public String extract(String html, int maxChars) {
+        if (html == null) {
+            return null;
+        }
+
+        TextBuffer out = new TextBuffer(Math.min(html.length(), maxChars), maxChars);
+        int length = html.length();
+        int i = 0;
+
+        while (i < length && !out.isFull()) {
+            char c = html.charAt(i);
+            if (c == '<') {
+                i = tag(html, i, out);
+            } else if (c == '&') {
+                i = entity(html, i, out);
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+
+        String text = out.toString();
+        Matcher quoteHeader = QUOTE_HEADER.matcher(text);
+        if (quoteHeader.find()) {
+            text = text.substring(0, quoteHeader.start()).strip();
+        }
+        return text;
+    }
+
+    /**
+     * Handles the markup starting at {@code start} and returns the index to carry on
+     * scanning from.
+     */
+    private static int tag(String html, int start, TextBuffer out) {
+        int length = html.length();
+
+        if (html.startsWith("<!--", start)) {
+            int end = html.indexOf("-->", start + 4);
+            return end < 0 ? length : end + 3;
+        }
+
+        int nameStart = start + 1;
+        boolean closing = nameStart < length && html.charAt(nameStart) == '/';
+        if (closing) {
+            nameStart++;
+        }
+        if (nameStart >= length || !isNameStart(html.charAt(nameStart))) {
+            if (nameStart < length && (html.charAt(nameStart) == '!' || html.charAt(nameStart) == '?')) {
+                // Doctype, CDATA or processing instruction
+                int end = html.indexOf('>', nameStart);
+                return end < 0 ? length : end + 1;
+            }
+            // A bare '<' in text
+            out.append('<');
+            return start + 1;
+        }
+
+        int nameEnd = nameStart;
+        while (nameEnd < length && isNameChar(html.charAt(nameEnd))) {
+            nameEnd++;
+        }
+        int tagEnd = tagEnd(html, nameEnd);
+
+        if (closing) {
+            if (isBlock(html, nameStart, nameEnd)) {
+                out.lineBreak(paragraphWeight(html, nameStart, nameEnd));
+            } else if (isCell(html, nameStart, nameEnd)) {
+                out.space();
+            }
+            return tagEnd;
+        }
+
+        for (String skipped : SKIPPED_ELEMENTS) {
+            if (nameIs(html, nameStart, nameEnd, skipped)) {
+                boolean selfClosing = tagEnd - 2 >= nameEnd && html.charAt(tagEnd - 2) == '/';
+                return selfClosing ? tagEnd : skipElement(html, tagEnd, skipped);
+            }
+        }
+
+        if (nameIs(html, nameStart, nameEnd, "blockquote")) {
+            out.lineBreak(2);
+            return skipElement(html, tagEnd, "blockquote");
+        }
+
+        if (isQuoteContainer(html, nameEnd, tagEnd)) {
+            return length;
+        }
+
+        if (nameIs(html, nameStart, nameEnd, "br")) {
+            // Unlike block tags, consecutive breaks add up (to one blank line)
+            out.lineBreak(out.pendingBreaks + 1);
+        } else if (isBlock(html, nameStart, nameEnd)) {
+            out.lineBreak(paragraphWeight(html, nameStart, nameEnd));
+        } else if (isCell(html, nameStart, nameEnd)) {
+            out.space();
+        }
+        return tagEnd;
+    }
+
+    /**
+     * Index just past the '>' closing the tag, honouring quoted attribute values.
+     */
+    private static int tagEnd(String html, int from) {
+        char quote = 0;
+        for (int i = from; i < html.length(); i++) {
+            char c = html.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i + 1;
+            }
+        }
+        return html.length();
+    }
+
+    /**
+     * Skips to the end of the element opened just before {@code from}, counting
+     * nested elements of the same name.
+     */
+    private static int skipElement(String html, int from, String name) {
+        int depth = 1;
+        int i = from;
+        int length = html.length();
+
+        while (i < length) {
+            int open = html.indexOf('<', i);
+            if (open < 0 || open + 1 >= length) {
+                return length;
+            }
+            boolean closing = html.charAt(open + 1) == '/';
+            int nameStart = open + (closing ? 2 : 1);
+            int nameEnd = nameStart + name.length();
+            if (nameEnd <= length && html.regionMatches(true, nameStart, name, 0, name.length())
+                    && (nameEnd == length || !isNameChar(html.charAt(nameEnd)))) {
+                depth += closing ? -1 : 1;
+                int end = tagEnd(html, nameEnd);
+                if (depth == 0) {
+                    return end;
+                }
+                i = end;
+            } else {
+                i = open + 1;
+            }
+        }
+        return length;
+    }
+
+    private static boolean isQuoteContainer(String html, int from, int to) {
+        for (int i = from; i < to; i++) {
+            for (String marker : QUOTE_MARKERS) {
+                if (html.regionMatches(true, i, marker, 0, marker.length())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int entity(String html, int start, TextBuffer out) {
+        int semicolon = -1;
+        int limit = Math.min(html.length(), start + 12);
+        for (int i = start + 1; i < limit; i++) {
+            char c = html.charAt(i);
+            if (c == ';') {
+                semicolon = i;
+                break;
+            }
+            if (!Character.isLetterOrDigit(c) && c != '#') {
+                break;
+            }
+        }
+
+        if (semicolon < 0) {
+            out.append('&');
+            return start + 1;
+        }
+
+        int codePoint = decodeEntity(html, start + 1, semicolon);
+        if (codePoint < 0) {
+            out.append('&');
+            return start + 1;
+        }
+
+        if (Character.isBmpCodePoint(codePoint)) {
+            out.append((char) codePoint);
+        } else {
+            out.append(Character.highSurrogate(codePoint));
+            out.append(Character.lowSurrogate(codePoint));
+        }
+        return semicolon + 1;
+    }
+
+    private static int decodeEntity(String html, int from, int to) {
+        if (html.charAt(from) == '#') {
+            boolean hex = from + 1 < to && (html.charAt(from + 1) == 'x' || html.charAt(from + 1) == 'X');
+            int digits = from + (hex ? 2 : 1);
+            if (digits >= to) {
+                return -1;
+            }
+            try {
+                int codePoint = Integer.parseInt(html, digits, to, hex ? 16 : 10);
+                return Character.isValidCodePoint(codePoint) && codePoint != 0 ? codePoint : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        switch (html.substring(from, to)) {
+            case "amp": return '&';
+            case "lt": return '<';
+            case "gt": return '>';
+            case "quot": return '"';
+            case "apos": return '\'';
+            case "nbsp": return ' ';
+            case "ndash": return '–';
+            case "mdash": return '—';
+            case "lsquo": return '‘';
+            case "rsquo": return '’';
+            case "ldquo": return '“';
+            case "rdquo": return '”';
+            case "hellip": return '…';
+            case "bull": return '•';
+            case "middot": return '·';
+            case "copy": return '©';
+            case "reg": return '®';
+            case "trade": return '™';
+            case "euro": return '€';
+            case "pound": return '£';
+            case "zwnj":
+            case "zwj":
+            case "shy": return 0x200B;
+            default: return -1;
+        }
+    }
+
+    private static boolean isBlock(String html, int from, int to) {
+        switch (to - from) {
+            case 1:
+                return nameIs(html, from, to, "p");
+            case 2:
+                return nameIs(html, from, to, "br") || nameIs(html, from, to, "li") || nameIs(html, from, to, "tr")
+                    || nameIs(html, from, to, "hr") || nameIs(html, from, to, "ul") || nameIs(html, from, to, "ol")
+                    || nameIs(html, from, to, "dd") || nameIs(html, from, to, "dt") || isHeading(html, from, to);
+            case 3:
+                return nameIs(html, from, to, "div") || nameIs(html, from, to, "pre");
+            case 5:
+                return nameIs(html, from, to, "table");
+            case 6:
+                return nameIs(html, from, to, "header") || nameIs(html, from, to, "footer");
+            case 7:
+                return nameIs(html, from, to, "section") || nameIs(html, from, to, "article");
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isHeading(String html, int from, int to) {
+        if (to - from != 2) {
+            return false;
+        }
+        char h = html.charAt(from);
+        char level = html.charAt(from + 1);
+        return (h == 'h' || h == 'H') && level >= '1' && level <= '6';
+    }
+
+    private static int paragraphWeight(String html, int from, int to) {
+        return nameIs(html, from, to, "p") || nameIs(html, from, to, "table") || isHeading(html, from, to) ? 2 : 1;
+    }
+
+    private static boolean isCell(String html, int from, int to) {
+        return nameIs(html, from, to, "td") || nameIs(html, from, to, "th");
+    }
+
+    private static boolean nameIs(String html, int from, int to, String name) {
+        return to - from == name.length() && html.regionMatches(true, from, name, 0, name.length());
+    }
+
+    private static boolean isNameStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isNameChar(char c) {
+        return isNameStart(c) || (c >= '0' && c <= '9') || c == ':' || c == '-';
+    }
+
+    /**
+     * Output with whitespace collapsed on the way in: runs of spaces become one,
+     * line breaks win over spaces, and at most one blank line is kept.
+     */
+    private static final class TextBuffer {
+        private final StringBuilder text;
+        private final int maxChars;
+        private boolean pendingSpace;
+        private int pendingBreaks;
+
+        private TextBuffer(int initialCapacity, int maxChars) {
+            this.text = new StringBuilder(Math.max(16, Math.min(initialCapacity, 4096)));
+            this.maxChars = maxChars;
+        }
+
+        void append(char c) {
+            if (c == 0x200B) {
+                return;
+            }
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u00A0') {
+                pendingSpace = true;
+                return;
+            }
+            if (text.length() > 0) {
+                if (pendingBreaks > 0) {
+                    text.append(pendingBreaks > 1 ? "\n\n" : "\n");
+                } else if (pendingSpace) {
+                    text.append(' ');
+                }
+            }
+            pendingBreaks = 0;
+            pendingSpace = false;
+            text.append(c);
+        }
+
+        void space() {
+            pendingSpace = true;
+        }
+
+        void lineBreak(int weight) {
+            pendingBreaks = Math.min(2, Math.max(pendingBreaks, weight));
+        }
+
+        boolean isFull() {
+            return text.length() >= maxChars;
+        }
+
+        @Override
+        public String toString() {
+            return text.length() > maxChars ? text.substring(0, maxChars) : text.toString();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.callcenter.emailmanagement.service;
+
+import jakarta.mail.Folder;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Store;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Long-lived IMAPS connection to a single account. The store and any folders
+ * opened for fetching stay connected between polls; callers invalidate the
+ * connection after an I/O failure and the next use reconnects.
+ */
+public class ImapConnection implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ImapConnection.class);
+
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final Session session;
+
+    private final Map<String, Folder> openFolders = new HashMap<>();
+    private Store store;
+
+    public ImapConnection(String host, int port, String username, String password) {
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+
+        Properties props = new Properties();
+        props.put("mail.store.protocol", "imaps");
+        props.put("mail.imaps.host", host);
+        props.put("mail.imaps.port", port);
+        props.put("mail.imaps.ssl.enable", true);
+        props.put("mail.imaps.connectiontimeout", 30000);
+        this.session = Session.getInstance(props);
+    }
+
+    public String getUsername() { return username; }
+
+    public synchronized Store connectedStore() throws MessagingException {
+        if (store == null) {
+            store = session.getStore("imaps");
+        }
+        if (!store.isConnected()) {
+            logger.info("🔌 Connecting to IMAP server {}:{} as {}", host, port, username);
+            store.connect(host, port, username, password);
+        }
+        return store;
+    }
+
+    /**
+     * Returns a read-only folder that stays selected between calls so each poll
+     * only pays for the commands it issues, not for a new TLS handshake and login.
+     */
+    public synchronized Folder openFolder(String folderName) throws MessagingException {
+        Folder folder = openFolders.get(folderName);
+        if (folder != null && folder.isOpen()) {
+            return folder;
+        }
+
+        folder = connectedStore().getFolder(folderName);
+        folder.open(Folder.READ_ONLY);
+        openFolders.put(folderName, folder);
+        return folder;
+    }
+
+    public synchronized void invalidate() {
+        for (Folder folder : openFolders.values()) {
+            try {
+                if (folder.isOpen()) {
+                    folder.close(false);
+                }
+            } catch (Exception e) {
+                logger.debug("Ignoring error closing folder {}: {}", folder.getFullName(), e.getMessage());
+            }
+        }
+        openFolders.clear();
+
+        if (store != null) {
+            try {
+                store.close();
+            } catch (Exception e) {
+                logger.debug("Ignoring error closing IMAP store: {}", e.getMessage());
+            }
+            store = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        invalidate();
+    }
+}
@@ -0,0 +1,120 @@
+package com.callcenter.emailmanagement.service;
+
+import com.sun.mail.imap.IMAPFolder;
+import jakarta.mail.Folder;
+import jakarta.mail.event.MessageCountAdapter;
+import jakarta.mail.event.MessageCountEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps a dedicated folder in IMAP IDLE and signals when the server reports new
+ * mail. The watcher owns its reconnect loop: any failure closes the folder and
+ * retries with exponential backoff until {@link #stop()} is called.
+ */
+public class ImapIdleWatcher implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(ImapIdleWatcher.class);
+
+    private final ImapConnection connection;
+    private final String folderName;
+    private final Runnable onNewMail;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+
+    private volatile boolean running = true;
+    private volatile IMAPFolder idleFolder;
+
+    public ImapIdleWatcher(ImapConnection connection, String folderName, Runnable onNewMail,
+                           long initialBackoffMs, long maxBackoffMs) {
+        this.connection = connection;
+        this.folderName = folderName;
+        this.onNewMail = onNewMail;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    @Override
+    public void run() {
+        long backoffMs = initialBackoffMs;
+
+        while (running) {
+            IMAPFolder folder = null;
+            try {
+                folder = (IMAPFolder) connection.connectedStore().getFolder(folderName);
+                folder.open(Folder.READ_ONLY);
+                folder.addMessageCountListener(new MessageCountAdapter() {
+                    @Override
+                    public void messagesAdded(MessageCountEvent event) {
+                        logger.info("📬 IDLE reported {} new messages in {}", event.getMessages().length, folderName);
+                        onNewMail.run();
+                    }
+                });
+                idleFolder = folder;
+                backoffMs = initialBackoffMs;
+                logger.info("👂 IDLE watching {} for {}", folderName, connection.getUsername());
+
+                // Catch up on anything that arrived while we were disconnected
+                onNewMail.run();
+
+                while (running && folder.isOpen()) {
+                    folder.idle();
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                logger.warn("⚠️ IDLE connection for {} lost: {} - reconnecting in {} ms", folderName, e.getMessage(), backoffMs);
+                // The store reconnects on next use if it dropped; the fetch folder is left alone
+                sleep(backoffMs);
+                backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+            } finally {
+                idleFolder = null;
+                closeQuietly(folder);
+            }
+        }
+
+        logger.info("🛑 IDLE watcher for {} stopped", folderName);
+    }
+
+    /**
+     * Servers drop IDLE sessions after ~30 minutes. Touching the folder from
+     * another thread aborts the current IDLE command and the loop re-issues it.
+     */
+    public void renew() {
+        IMAPFolder folder = idleFolder;
+        if (folder != null && folder.isOpen()) {
+            try {
+                folder.getMessageCount();
+            } catch (Exception e) {
+                logger.debug("IDLE renewal for {} failed: {}", folderName, e.getMessage());
+            }
+        }
+    }
+
+    public void stop() {
+        running = false;
+        closeQuietly(idleFolder);
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private void closeQuietly(Folder folder) {
+        if (folder == null) {
+            return;
+        }
+        try {
+            if (folder.isOpen()) {
+                folder.close(false);
+            }
+        } catch (Exception e) {
+            logger.debug("Ignoring error closing IDLE folder {}: {}", folderName, e.getMessage());
+        }
+    }
+}
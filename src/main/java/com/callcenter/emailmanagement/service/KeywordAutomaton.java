@@ -0,0 +1,180 @@
+package com.callcenter.emailmanagement.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.function.IntConsumer;
+
+/**
+ * Aho-Corasick automaton over a fixed set of keywords. A single left-to-right pass
+ * reports every occurrence of every keyword, so scanning costs O(text length)
+ * regardless of how many keywords are configured. Matching is case-insensitive:
+ * keywords are lowercased once when compiled and each input character is folded
+ * as it is read, so the text is never copied.
+ *
+ * Only whole words count: an occurrence is dropped when a letter or digit runs
+ * straight into either end of it, so {@code charge} does not match inside
+ * {@code surcharge} or {@code chargeback}. A keyword that starts or ends with
+ * punctuation is not checked at that end.
+ *
+ * ASCII transitions, with upper and lower case folded together, are precomputed
+ * into one flat table; other characters fall back to the sparse trie edges and
+ * failure links.
+ */
+public class KeywordAutomaton {
+
+    private static final int ASCII = 128;
+    private static final int[] NO_OUTPUT = new int[0];
+
+    private final int keywordCount;
+    private final int[] keywordLengths;
+    private final boolean[] wordStart;
+    private final boolean[] wordEnd;
+    private final int[] asciiTransitions;
+    private final List<Map<Character, Integer>> edges;
+    private final int[] failure;
+    private final int[][] outputs;
+
+    public KeywordAutomaton(List<String> keywords) {
+        this.keywordCount = keywords.size();
+        this.keywordLengths = new int[keywordCount];
+        this.wordStart = new boolean[keywordCount];
+        this.wordEnd = new boolean[keywordCount];
+
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> terminal = new ArrayList<>();
+        trie.add(new HashMap<>());
+        terminal.add(new ArrayList<>());
+
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k);
+            keywordLengths[k] = keyword.length();
+            if (!keyword.isEmpty()) {
+                wordStart[k] = isWordChar(keyword.charAt(0));
+                wordEnd[k] = isWordChar(keyword.charAt(keyword.length() - 1));
+            }
+            int node = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = Character.toLowerCase(keyword.charAt(i));
+                Integer next = trie.get(node).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new HashMap<>());
+                    terminal.add(new ArrayList<>());
+                    trie.get(node).put(c, next);
+                }
+                node = next;
+            }
+            if (node != 0) {
+                terminal.get(node).add(k);
+            }
+        }
+
+        int nodeCount = trie.size();
+        this.edges = trie;
+        this.failure = new int[nodeCount];
+        this.outputs = new int[nodeCount][];
+        this.asciiTransitions = new int[nodeCount * ASCII];
+
+        // Breadth-first so every node's failure target is finished before the node itself
+        Queue<Integer> queue = new ArrayDeque<>();
+        outputs[0] = NO_OUTPUT;
+        for (int child : trie.get(0).values()) {
+            failure[child] = 0;
+            queue.add(child);
+        }
+
+        List<Integer> order = new ArrayList<>();
+        order.add(0);
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            order.add(node);
+
+            int[] own = terminal.get(node).stream().mapToInt(Integer::intValue).toArray();
+            int[] inherited = outputs[failure[node]];
+            outputs[node] = inherited.length == 0 ? own : concat(own, inherited);
+
+            for (Map.Entry<Character, Integer> edge : trie.get(node).entrySet()) {
+                int child = edge.getValue();
+                failure[child] = follow(failure[node], edge.getKey());
+                queue.add(child);
+            }
+        }
+
+        for (int node : order) {
+            for (char c = 0; c < ASCII; c++) {
+                char folded = Character.toLowerCase(c);
+                Integer next = trie.get(node).get(folded);
+                if (next != null) {
+                    asciiTransitions[node * ASCII + c] = next;
+                } else {
+                    asciiTransitions[node * ASCII + c] = node == 0 ? 0 : asciiTransitions[failure[node] * ASCII + c];
+                }
+            }
+        }
+    }
+
+    public int getKeywordCount() {
+        return keywordCount;
+    }
+
+    /**
+     * Reports the index of each whole-word keyword occurrence in {@code text}, in
+     * the order the occurrences end.
+     */
+    public void scan(CharSequence text, IntConsumer onMatch) {
+        if (text == null) {
+            return;
+        }
+
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            state = c < ASCII ? asciiTransitions[state * ASCII + c] : follow(state, Character.toLowerCase(c));
+
+            int[] matched = outputs[state];
+            if (matched.length > 0) {
+                for (int keyword : matched) {
+                    if (isWholeWord(text, keyword, i)) {
+                        onMatch.accept(keyword);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean isWholeWord(CharSequence text, int keyword, int end) {
+        int start = end - keywordLengths[keyword] + 1;
+        if (wordStart[keyword] && start > 0 && isWordChar(text.charAt(start - 1))) {
+            return false;
+        }
+        return !(wordEnd[keyword] && end + 1 < text.length() && isWordChar(text.charAt(end + 1)));
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    private int follow(int state, char c) {
+        while (true) {
+            Integer next = edges.get(state).get(c);
+            if (next != null) {
+                return next;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failure[state];
+        }
+    }
+
+    private static int[] concat(int[] first, int[] second) {
+        int[] combined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, combined, first.length, second.length);
+        return combined;
+    }
+}
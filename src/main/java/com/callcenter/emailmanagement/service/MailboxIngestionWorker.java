@@ -0,0 +1,281 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.Email;
+import com.callcenter.emailmanagement.domain.model.WorkQueueType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ingests one mailbox folder. Each worker owns its IMAP connection, watermark and
+ * poll schedule and runs on its own thread, so a slow or unreachable mailbox
+ * never delays the others. An optional IDLE watcher wakes the worker as soon as
+ * new mail arrives; otherwise it polls on its interval.
+ *
+ * Both run on platform threads. The IMAP client blocks inside synchronized
+ * protocol methods, which would pin a virtual thread's carrier for the whole
+ * IDLE (up to the renew interval) and starve the virtual-thread email lanes.
+ *
+ * The folder's UID watermark only moves past mail the pipeline has stored. UIDs
+ * handed to the pipeline stay pending until it reports back, and each poll first
+ * commits the watermark up to just below the lowest pending UID. Mail lost from
+ * memory (a crash, or lanes cut off at shutdown) is therefore fetched again, and
+ * the dedup check drops whatever did make it. An email that fails is refetched
+ * until it has failed {@code max-attempts} times, after which it is skipped.
+ */
+public class MailboxIngestionWorker implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(MailboxIngestionWorker.class);
+
+    private final String name;
+    private final ImapConnection connection;
+    private final String folderName;
+    private final WorkQueueType queueType;
+    private final long pollIntervalMs;
+    private final long idleRenewIntervalMs;
+    private final int maxAttempts;
+
+    private final OutlookEmailService outlookEmailService;
+    private final MessageDeduplicationService messageDeduplicationService;
+    private final EmailProcessingPipeline emailProcessingPipeline;
+
+    private final Semaphore wakeup = new Semaphore(0);
+    private final AtomicLong emailsFetched = new AtomicLong();
+    private final AtomicLong emailsSubmitted = new AtomicLong();
+
+    private final ConcurrentSkipListSet<Long> pendingUids = new ConcurrentSkipListSet<>();
+    private final Map<Long, Integer> failedAttempts = new ConcurrentHashMap<>();
+    private String mailboxKey;
+    private long uidValidity;
+    private long fetchedUid = -1;
+    private long committedUid = -1;
+
+    private volatile boolean running = true;
+    private volatile LocalDateTime lastPollTime;
+    private volatile long lastPollMillis;
+    private ImapIdleWatcher idleWatcher;
+    private long lastIdleRenewMillis = System.currentTimeMillis();
+
+    public MailboxIngestionWorker(String name, ImapConnection connection, String folderName, WorkQueueType queueType,
+                                  long pollIntervalMs, long idleRenewIntervalMs, int maxAttempts,
+                                  OutlookEmailService outlookEmailService,
+                                  MessageDeduplicationService messageDeduplicationService,
+                                  EmailProcessingPipeline emailProcessingPipeline) {
+        this.name = name;
+        this.connection = connection;
+        this.folderName = folderName;
+        this.queueType = queueType;
+        this.pollIntervalMs = pollIntervalMs;
+        this.idleRenewIntervalMs = idleRenewIntervalMs;
+        this.maxAttempts = maxAttempts;
+        this.outlookEmailService = outlookEmailService;
+        this.messageDeduplicationService = messageDeduplicationService;
+        this.emailProcessingPipeline = emailProcessingPipeline;
+    }
+
+    public void start(boolean idleEnabled, long idleInitialBackoffMs, long idleMaxBackoffMs) {
+        Thread.ofPlatform().name("mailbox-" + name).daemon().start(this);
+
+        if (idleEnabled) {
+            idleWatcher = new ImapIdleWatcher(connection, folderName, this::wake, idleInitialBackoffMs, idleMaxBackoffMs);
+            Thread.ofPlatform().name("imap-idle-" + name).daemon().start(idleWatcher);
+        }
+    }
+
+    public void stop() {
+        running = false;
+        if (idleWatcher != null) {
+            idleWatcher.stop();
+        }
+        wake();
+        connection.close();
+    }
+
+    /**
+     * Requests an immediate poll. Signals that arrive while a poll is running
+     * collapse into a single follow-up poll.
+     */
+    public void wake() {
+        wakeup.release();
+    }
+
+    @Override
+    public void run() {
+        logger.info("📫 Mailbox worker '{}' started for {}/{} (queue: {}, poll every {} ms)",
+            name, connection.getUsername(), folderName, queueType != null ? queueType : "classifier", pollIntervalMs);
+
+        while (running) {
+            wakeup.drainPermits();
+            pollOnce();
+            renewIdleIfDue();
+
+            try {
+                wakeup.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        logger.info("🛑 Mailbox worker '{}' stopped", name);
+    }
+
+    private void pollOnce() {
+        logger.info("🔍 Polling mailbox '{}' for new emails...", name);
+        long startMillis = System.currentTimeMillis();
+
+        try {
+            commitWatermark();
+
+            OutlookEmailService.FetchResult result = outlookEmailService.fetchEmailsFromFolder(connection, folderName);
+            List<Email> newEmails = result.getEmails();
+            emailsFetched.addAndGet(newEmails.size());
+            trackFolder(result);
+
+            if (newEmails.isEmpty()) {
+                logger.debug("📭 No new emails found in '{}'", name);
+            } else {
+                List<Email> unseenEmails = messageDeduplicationService.filterNew(newEmails);
+                logger.info("📧 Found {} new emails to process in '{}' ({} already ingested)",
+                    unseenEmails.size(), name, newEmails.size() - unseenEmails.size());
+
+                for (Email email : unseenEmails) {
+                    // A list's own mailbox decides the queue; no keyword guessing needed
+                    if (queueType != null) {
+                        email.setTargetQueueType(queueType);
+                    }
+                    Long uid = result.getUid(email);
+                    if (uid != null) {
+                        pendingUids.add(uid);
+                        emailProcessingPipeline.submit(email, (settledEmail, stored) -> settled(uid, settledEmail, stored));
+                    } else {
+                        emailProcessingPipeline.submit(email);
+                    }
+                    emailsSubmitted.incrementAndGet();
+                }
+            }
+
+            if (result.getHighestUid() >= 0) {
+                // Everything up to here is stored or pending, so the next commit can move up to it
+                fetchedUid = Math.max(fetchedUid, result.getHighestUid());
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+            logger.warn("⚠️ Mailbox worker '{}' interrupted while handing emails to the pipeline", name);
+        } catch (Exception e) {
+            logger.error("❌ Error polling mailbox '{}': {}", name, e.getMessage(), e);
+        } finally {
+            lastPollTime = LocalDateTime.now();
+            lastPollMillis = System.currentTimeMillis() - startMillis;
+        }
+    }
+
+    private void trackFolder(OutlookEmailService.FetchResult result) {
+        if (result.getHighestUid() < 0) {
+            return;
+        }
+        if (!result.getMailboxKey().equals(mailboxKey) || result.getUidValidity() != uidValidity) {
+            // New folder numbering: UIDs pending under the old one no longer mean anything
+            pendingUids.clear();
+            failedAttempts.clear();
+            mailboxKey = result.getMailboxKey();
+            uidValidity = result.getUidValidity();
+            fetchedUid = -1;
+            committedUid = -1;
+        }
+    }
+
+    private void settled(long uid, Email email, boolean stored) {
+        if (stored) {
+            failedAttempts.remove(uid);
+            pendingUids.remove(uid);
+            return;
+        }
+        // Left pending so the watermark stays below it and the next fetch retries it
+        int attempts = failedAttempts.merge(uid, 1, Integer::sum);
+        if (attempts >= maxAttempts) {
+            logger.error("❌ Giving up on UID {} in '{}' ({}) after {} attempts", uid, name, email.getMessageId(), attempts);
+            failedAttempts.remove(uid);
+            pendingUids.remove(uid);
+        }
+    }
+
+    /**
+     * Moves the stored watermark up to just below the lowest UID still pending.
+     */
+    private void commitWatermark() {
+        if (fetchedUid < 0) {
+            return;
+        }
+        long safeUid = fetchedUid;
+        Long lowestPending = pendingUids.isEmpty() ? null : pendingUids.first();
+        if (lowestPending != null) {
+            safeUid = Math.min(safeUid, lowestPending - 1);
+        }
+        if (safeUid > committedUid) {
+            outlookEmailService.commitWatermark(mailboxKey, uidValidity, safeUid);
+            committedUid = safeUid;
+        }
+    }
+
+    private void renewIdleIfDue() {
+        long now = System.currentTimeMillis();
+        if (idleWatcher != null && now - lastIdleRenewMillis >= idleRenewIntervalMs) {
+            idleWatcher.renew();
+            lastIdleRenewMillis = now;
+        }
+    }
+
+    public MailboxStatus getStatus() {
+        return new MailboxStatus(name, connection.getUsername(), folderName, queueType,
+            lastPollTime, lastPollMillis, emailsFetched.get(), emailsSubmitted.get(), pendingUids.size(), committedUid);
+    }
+
+    public static class MailboxStatus {
+        private final String name;
+        private final String account;
+        private final String folder;
+        private final WorkQueueType queueType;
+        private final LocalDateTime lastPollTime;
+        private final long lastPollMillis;
+        private final long emailsFetched;
+        private final long emailsSubmitted;
+        private final int pendingEmails;
+        private final long watermarkUid;
+
+        public MailboxStatus(String name, String account, String folder, WorkQueueType queueType,
+                             LocalDateTime lastPollTime, long lastPollMillis, long emailsFetched, long emailsSubmitted,
+                             int pendingEmails, long watermarkUid) {
+            this.name = name;
+            this.account = account;
+            this.folder = folder;
+            this.queueType = queueType;
+            this.lastPollTime = lastPollTime;
+            this.lastPollMillis = lastPollMillis;
+            this.emailsFetched = emailsFetched;
+            this.emailsSubmitted = emailsSubmitted;
+            this.pendingEmails = pendingEmails;
+            this.watermarkUid = watermarkUid;
+        }
+
+        public String getName() { return name; }
+        public String getAccount() { return account; }
+        public String getFolder() { return folder; }
+        public WorkQueueType getQueueType() { return queueType; }
+        public LocalDateTime getLastPollTime() { return lastPollTime; }
+        public long getLastPollMillis() { return lastPollMillis; }
+        public long getEmailsFetched() { return emailsFetched; }
+        public long getEmailsSubmitted() { return emailsSubmitted; }
+        public int getPendingEmails() { return pendingEmails; }
+        public long getWatermarkUid() { return watermarkUid; }
+    }
+}
@@ -0,0 +1,193 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.Email;
+import com.callcenter.emailmanagement.repository.EmailRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Filters already-ingested emails out of a poll batch. A bounded, LRU-ordered
+ * seen-set answers most lookups from memory; anything it does not know about is
+ * checked against the emails table with one set-based query per batch.
+ */
+@Service
+public class MessageDeduplicationService {
+    private static final Logger logger = LoggerFactory.getLogger(MessageDeduplicationService.class);
+    
+    private static final int QUERY_CHUNK_SIZE = 500;
+    
+    @Autowired
+    private EmailRepository emailRepository;
+    
+    @Value("${app.ingestion.dedup.seen-capacity:100000}")
+    private int seenCapacity;
+    
+    private volatile Map<String, Boolean> seenMessageIds;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmSeenSet() {
+        Map<String, Boolean> seen = seenSet();
+        
+        List<String> recent = emailRepository.findRecentMessageIds(PageRequest.of(0, seenCapacity));
+        synchronized (seen) {
+            // Oldest first so the most recent ids end up as the most recently used entries
+            for (int i = recent.size() - 1; i >= 0; i--) {
+                seen.putIfAbsent(recent.get(i), Boolean.TRUE);
+            }
+        }
+        
+        logger.info("🧠 Dedup seen-set warmed with {} message ids (capacity {})", recent.size(), seenCapacity);
+    }
+    
+    /**
+     * Returns the emails in the batch that have not been ingested before, in their
+     * original order. Duplicates within the batch itself are dropped as well.
+     */
+    public List<Email> filterNew(List<Email> batch) {
+        Map<String, Boolean> seen = seenSet();
+        Set<String> batchIds = new HashSet<>();
+        List<Email> unknown = new ArrayList<>();
+        
+        synchronized (seen) {
+            for (Email email : batch) {
+                String messageId = email.getMessageId();
+                if (seen.get(messageId) == null && batchIds.add(messageId)) {
+                    unknown.add(email);
+                }
+            }
+        }
+        
+        Set<String> existing = new HashSet<>();
+        List<String> unknownIds = new ArrayList<>(batchIds);
+        for (int i = 0; i < unknownIds.size(); i += QUERY_CHUNK_SIZE) {
+            List<String> chunk = unknownIds.subList(i, Math.min(i + QUERY_CHUNK_SIZE, unknownIds.size()));
+            existing.addAll(emailRepository.findExistingMessageIds(chunk));
+        }
+        
+        List<Email> fresh = new ArrayList<>(unknown.size());
+        synchronized (seen) {
+            for (Email email : unknown) {
+                seen.put(email.getMessageId(), Boolean.TRUE);
+                if (!existing.contains(email.getMessageId())) {
+                    fresh.add(email);
+                }
+            }
+        }
+        
+        logger.debug("📧 Dedup: {} in batch, {} new ({} already in database)", batch.size(), fresh.size(), existing.size());
+        return fresh;
+    }
+    
+    /**
+     * Returns the ids that are already ingested or being ingested, without marking
+     * the rest as seen. Lets the fetcher skip downloading bodies and attachments
+     * of messages {@link #filterNew} would drop anyway.
+     */
+    public Set<String> findKnown(Collection<String> messageIds) {
+        Map<String, Boolean> seen = seenSet();
+        Set<String> known = new HashSet<>();
+        List<String> unknownIds = new ArrayList<>();
+        
+        synchronized (seen) {
+            for (String messageId : messageIds) {
+                if (seen.get(messageId) != null) {
+                    known.add(messageId);
+                } else {
+                    unknownIds.add(messageId);
+                }
+            }
+        }
+        
+        for (int i = 0; i < unknownIds.size(); i += QUERY_CHUNK_SIZE) {
+            List<String> chunk = unknownIds.subList(i, Math.min(i + QUERY_CHUNK_SIZE, unknownIds.size()));
+            known.addAll(emailRepository.findExistingMessageIds(chunk));
+        }
+        return known;
+    }
+    
+    /**
+     * Whether an email with this Message-ID is in the database, for telling a
+     * duplicate apart from other constraint violations.
+     */
+    public boolean isStored(String messageId) {
+        return messageId != null && emailRepository.existsByMessageId(messageId);
+    }
+    
+    /**
+     * Lets a message be retried by a later poll when its processing failed.
+     */
+    public void forget(String messageId) {
+        Map<String, Boolean> seen = seenSet();
+        synchronized (seen) {
+            seen.remove(messageId);
+        }
+    }
+    
+    /**
+     * Builds a stable Message-ID for mail that arrived without one, so redelivery of
+     * the same message dedups instead of colliding with every other id-less email.
+     */
+    public static String syntheticMessageId(Email email, Date sentDate) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, email.getFromAddress());
+            update(digest, email.getToAddress());
+            update(digest, email.getSubject());
+            update(digest, sentDate != null ? Long.toString(sentDate.getTime()) : null);
+            update(digest, email.getTextContent() != null ? email.getTextContent() : email.getHtmlContent());
+            
+            String hash = HexFormat.of().formatHex(digest.digest(), 0, 20);
+            return "<synthetic-" + hash + "@lb-email-management>";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        // Field separator keeps ("ab", "c") and ("a", "bc") distinct
+        digest.update((byte) 0);
+    }
+    
+    private Map<String, Boolean> seenSet() {
+        // Polls can start before ApplicationReadyEvent has warmed the set
+        if (seenMessageIds == null) {
+            synchronized (this) {
+                if (seenMessageIds == null) {
+                    seenMessageIds = createSeenSet();
+                }
+            }
+        }
+        return seenMessageIds;
+    }
+    
+    private Map<String, Boolean> createSeenSet() {
+        return new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > seenCapacity;
+            }
+        };
+    }
+}
@@ -0,0 +1,161 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.Email;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Multipart;
+import jakarta.mail.Part;
+import jakarta.mail.internet.ContentType;
+import jakarta.mail.internet.MimeUtility;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Walks a MIME tree without materializing it. Text and HTML bodies are decoded
+ * straight from the part's input stream and capped at a configurable number of
+ * characters; attachments are streamed into the {@link AttachmentStore} (or
+ * skipped) and only a reference is kept on the {@link Email}. Over IMAP each part's stream
+ * is fetched lazily, so closing a capped stream early also stops the download.
+ */
+@Component
+public class MimeContentExtractor {
+    private static final Logger logger = LoggerFactory.getLogger(MimeContentExtractor.class);
+
+    private static final int MAX_DEPTH = 10;
+    private static final int BUFFER_SIZE = 8192;
+
+    @Autowired
+    private AttachmentStore attachmentStore;
+
+    @Value("${app.email.body.max-chars:262144}")
+    private int maxBodyChars;
+
+    @Value("${app.email.attachments.store:true}")
+    private boolean storeAttachments;
+
+    public void extract(Part message, Email email) throws MessagingException, IOException {
+        List<String> attachmentRefs = new ArrayList<>();
+        walk(message, email, attachmentRefs, 0);
+
+        if (!attachmentRefs.isEmpty()) {
+            email.setAttachmentUrls(attachmentRefs);
+        }
+    }
+
+    private void walk(Part part, Email email, List<String> attachmentRefs, int depth) throws MessagingException, IOException {
+        if (depth > MAX_DEPTH) {
+            logger.warn("MIME nesting deeper than {} levels ignored", MAX_DEPTH);
+            return;
+        }
+
+        if (isAttachment(part)) {
+            handleAttachment(part, attachmentRefs);
+        } else if (part.isMimeType("multipart/*")) {
+            // Descends into multipart/mixed, alternative and related alike
+            Multipart multipart = (Multipart) part.getContent();
+            for (int i = 0; i < multipart.getCount(); i++) {
+                walk(multipart.getBodyPart(i), email, attachmentRefs, depth + 1);
+            }
+        } else if (part.isMimeType("text/plain")) {
+            if (email.getTextContent() == null) {
+                email.setTextContent(readCapped(part));
+            }
+        } else if (part.isMimeType("text/html")) {
+            if (email.getHtmlContent() == null) {
+                email.setHtmlContent(readCapped(part));
+            }
+        } else {
+            // Inline images, calendar parts, forwarded message/rfc822 and the like
+            handleAttachment(part, attachmentRefs);
+        }
+    }
+
+    private boolean isAttachment(Part part) throws MessagingException {
+        if (Part.ATTACHMENT.equalsIgnoreCase(part.getDisposition())) {
+            return true;
+        }
+        return part.getFileName() != null && !part.isMimeType("multipart/*");
+    }
+
+    private String readCapped(Part part) throws MessagingException, IOException {
+        Charset charset = charsetOf(part);
+        char[] buffer = new char[BUFFER_SIZE];
+        StringBuilder content = new StringBuilder(Math.min(maxBodyChars, BUFFER_SIZE));
+
+        try (Reader reader = new InputStreamReader(part.getInputStream(), charset)) {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                int remaining = maxBodyChars - content.length();
+                if (read > remaining) {
+                    content.append(buffer, 0, remaining);
+                    logger.info("✂️ Body part truncated at {} characters", maxBodyChars);
+                    break;
+                }
+                content.append(buffer, 0, read);
+            }
+        }
+
+        return content.toString();
+    }
+
+    private Charset charsetOf(Part part) {
+        try {
+            String charset = new ContentType(part.getContentType()).getParameter("charset");
+            if (charset != null) {
+                return Charset.forName(MimeUtility.javaCharset(charset));
+            }
+        } catch (Exception e) {
+            logger.debug("Unrecognized charset, falling back to UTF-8: {}", e.getMessage());
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private void handleAttachment(Part part, List<String> attachmentRefs) throws MessagingException, IOException {
+        String fileName = decodeFileName(part);
+
+        if (!storeAttachments) {
+            logger.debug("📎 Skipping attachment {} ({})", fileName, part.getContentType());
+            return;
+        }
+
+        String ref;
+        try (InputStream in = part.getInputStream()) {
+            ref = attachmentStore.store(in, fileName, baseContentType(part));
+        }
+        if (ref != null) {
+            attachmentRefs.add(ref);
+        }
+    }
+
+    private String baseContentType(Part part) {
+        try {
+            return new ContentType(part.getContentType()).getBaseType().toLowerCase(Locale.ROOT);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private String decodeFileName(Part part) throws MessagingException {
+        String fileName = part.getFileName();
+        if (fileName == null) {
+            return "part";
+        }
+        try {
+            return MimeUtility.decodeText(fileName);
+        } catch (IOException e) {
+            return fileName;
+        }
+    }
+}
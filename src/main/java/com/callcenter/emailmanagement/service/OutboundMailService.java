@@ -0,0 +1,176 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.Email;
+import com.callcenter.emailmanagement.repository.EmailRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Durable outbox for agent replies. Replies are persisted as QUEUED outbound
+ * emails and acknowledged immediately; a background sender drains due entries in
+ * batches over pooled SMTP connections, retrying failures with exponential backoff
+ * and recording the delivery status on each {@link Email}.
+ *
+ * Senders on different nodes share the table. A batch is claimed with a
+ * conditional update that moves rows from QUEUED to SENDING under this sender's
+ * owner id and a lease of {@code lease-ms}, so each reply goes to one sender. A
+ * reply still SENDING after its lease has run out is taken to belong to a sender
+ * that died, and is queued again.
+ */
+@Service
+public class OutboundMailService {
+    private static final Logger logger = LoggerFactory.getLogger(OutboundMailService.class);
+    
+    @Autowired
+    private EmailRepository emailRepository;
+    
+    @Autowired
+    private OutlookEmailService outlookEmailService;
+    
+    @Autowired
+    private EmailThreadingService emailThreadingService;
+    
+    @Autowired
+    private CaseNumberAllocator caseNumberAllocator;
+    
+    @Value("${app.email.username}")
+    private String emailUsername;
+    
+    @Value("${app.outbox.batch-size:20}")
+    private int batchSize;
+    
+    @Value("${app.outbox.max-attempts:6}")
+    private int maxAttempts;
+    
+    @Value("${app.outbox.initial-backoff-ms:5000}")
+    private long initialBackoffMs;
+    
+    @Value("${app.outbox.max-backoff-ms:900000}")
+    private long maxBackoffMs;
+    
+    @Value("${app.outbox.lease-ms:300000}")
+    private long leaseMs;
+    
+    // Unique per process, so a restarted node does not mistake its old claims for live ones
+    private String owner;
+    
+    @PostConstruct
+    public void initialize() {
+        owner = caseNumberAllocator.getNodeId() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+    
+    public Email queueReply(Email email) {
+        email.setMessageId(responseMessageId());
+        
+        if (email.getEmailCase() != null) {
+            // Reply to the customer's latest message so their mail client keeps the thread
+            emailRepository.findFirstByEmailCaseAndDirectionOrderByReceivedDateDesc(email.getEmailCase(), Email.EmailDirection.INBOUND)
+                .ifPresent(parent -> {
+                    email.setInReplyTo(parent.getMessageId());
+                    email.setReferences(EmailThreadingService.referencesFor(parent));
+                });
+        }
+        
+        email.setDirection(Email.EmailDirection.OUTBOUND);
+        email.setDeliveryStatus(Email.DeliveryStatus.QUEUED);
+        email.setDeliveryAttempts(0);
+        email.setNextDeliveryAttempt(LocalDateTime.now());
+        
+        Email queued = emailRepository.save(email);
+        if (queued.getEmailCase() != null) {
+            String messageId = queued.getMessageId();
+            Long caseId = queued.getEmailCase().getId();
+            TransactionCallbacks.afterCommit(() -> emailThreadingService.remember(messageId, caseId));
+        }
+        logger.info("📨 Reply queued for delivery: {} to {}", queued.getSubject(), queued.getToAddress());
+        return queued;
+    }
+    
+    private String responseMessageId() {
+        int at = emailUsername.lastIndexOf('@');
+        String domain = at >= 0 ? emailUsername.substring(at + 1) : "lb-email-management";
+        return "<RESPONSE-" + UUID.randomUUID() + "@" + domain + ">";
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverInterruptedDeliveries() {
+        // Left SENDING by a sender that stopped before its lease ran out
+        int requeued = emailRepository.requeueExpiredDeliveries(LocalDateTime.now());
+        if (requeued > 0) {
+            logger.warn("🔁 Re-queued {} replies whose delivery lease expired", requeued);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:2000}")
+    public void drainOutbox() {
+        recoverInterruptedDeliveries();
+        
+        List<Long> due;
+        while (!(due = emailRepository.findDueOutboundIds(LocalDateTime.now(), PageRequest.of(0, batchSize))).isEmpty()) {
+            int claimed = emailRepository.claimOutbound(due, owner, LocalDateTime.now().plus(Duration.ofMillis(leaseMs)));
+            if (claimed > 0) {
+                deliverBatch(emailRepository.findClaimedOutbound(due, owner));
+            }
+            if (due.size() < batchSize) {
+                break;
+            }
+        }
+    }
+    
+    private void deliverBatch(List<Email> batch) {
+        logger.info("📤 Delivering {} queued replies", batch.size());
+        
+        Map<Email, Exception> failures = outlookEmailService.sendEmails(batch);
+        
+        for (Email email : batch) {
+            email.setDeliveryAttempts(email.getDeliveryAttempts() + 1);
+            Exception failure = failures.get(email);
+            
+            if (failure == null) {
+                email.setDeliveryStatus(Email.DeliveryStatus.SENT);
+                email.setLastDeliveryError(null);
+                email.setNextDeliveryAttempt(null);
+            } else {
+                recordFailure(email, failure);
+            }
+            
+            int updated = emailRepository.completeDelivery(email.getId(), owner, email.getDeliveryStatus(),
+                email.getDeliveryAttempts(), email.getNextDeliveryAttempt(), email.getLastDeliveryError(), email.getSentDate());
+            if (updated == 0) {
+                logger.warn("⚠️ Lease on reply {} expired during delivery; another sender owns it now", email.getMessageId());
+            }
+        }
+    }
+    
+    private void recordFailure(Email email, Exception failure) {
+        String error = failure.getMessage() != null ? failure.getMessage() : failure.getClass().getSimpleName();
+        email.setLastDeliveryError(error.length() > 1000 ? error.substring(0, 1000) : error);
+        
+        if (email.getDeliveryAttempts() >= maxAttempts) {
+            email.setDeliveryStatus(Email.DeliveryStatus.FAILED);
+            email.setNextDeliveryAttempt(null);
+            logger.error("❌ Giving up on reply {} after {} attempts: {}", email.getMessageId(), email.getDeliveryAttempts(), error);
+            return;
+        }
+        
+        long backoffMs = Math.min(maxBackoffMs, initialBackoffMs << Math.min(email.getDeliveryAttempts() - 1, 20));
+        email.setDeliveryStatus(Email.DeliveryStatus.QUEUED);
+        email.setNextDeliveryAttempt(LocalDateTime.now().plus(Duration.ofMillis(backoffMs)));
+        logger.warn("⚠️ Reply {} failed (attempt {}), retrying in {} ms: {}",
+            email.getMessageId(), email.getDeliveryAttempts(), backoffMs, error);
+    }
+}
@@ -1,9 +1,17 @@
 package com.callcenter.emailmanagement.service;
 
+import com.callcenter.emailmanagement.config.DistributionListProperties;
 import com.callcenter.emailmanagement.domain.model.Email;
+import com.callcenter.emailmanagement.domain.model.MailboxWatermark;
+import com.callcenter.emailmanagement.domain.model.WorkQueueType;
+import com.callcenter.emailmanagement.repository.MailboxWatermarkRepository;
+import jakarta.annotation.PostConstruct;
 import jakarta.mail.*;
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeUtility;
+import jakarta.mail.search.FlagTerm;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
@@ -12,98 +20,250 @@ import org.slf4j.LoggerFactory;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Properties;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class OutlookEmailService {
     private static final Logger logger = LoggerFactory.getLogger(OutlookEmailService.class);
     
+    // Headers read during conversion that are not part of the IMAP ENVELOPE
+    private static final String[] PREFETCHED_HEADERS = { "X-Priority", "In-Reply-To", "References" };
+    
+    // Default length of the emails table's string columns
+    private static final int MAX_COLUMN_LENGTH = 255;
+    private static final String NO_SUBJECT = "(no subject)";
+    // Lengths of the emails.in_reply_to and emails.reference_ids columns
+    private static final int MAX_IN_REPLY_TO_LENGTH = 1000;
+    private static final int MAX_REFERENCES_LENGTH = 4000;
+    private static final String UNKNOWN_SENDER = "unknown-sender";
+    
     @Value("${app.email.username}")
     private String emailUsername;
     
-    @Value("${app.email.password}")
-    private String emailPassword;
+    @Value("${app.email.incremental-fetch:true}")
+    private boolean incrementalFetch;
+    
+    @Autowired
+    private MailboxWatermarkRepository watermarkRepository;
+    
+    @Autowired
+    private MimeContentExtractor mimeContentExtractor;
+    
+    @Autowired
+    private SmtpTransportPool smtpTransportPool;
+    
+    @Autowired
+    private MessageDeduplicationService messageDeduplicationService;
+    
+    @Autowired
+    private DistributionListProperties distributionListProperties;
     
-    @Value("${app.email.host:outlook.office365.com}")
-    private String emailHost;
+    // Lower-cased list address to its queue type, for mail a list delivers into a shared mailbox
+    private final Map<String, WorkQueueType> listQueueTypes = new HashMap<>();
     
-    @Value("${app.email.port:993}")
-    private int emailPort;
+    @PostConstruct
+    public void initialize() {
+        for (DistributionListProperties.DistributionList list : distributionListProperties.getDistributionLists()) {
+            if (list.getAddress() != null && list.getQueueType() != null) {
+                listQueueTypes.put(list.getAddress().trim().toLowerCase(Locale.ROOT), list.getQueueType());
+            }
+        }
+    }
     
-    public List<Email> fetchEmailsFromFolder(String folderName) {
-        logger.info("🔍 Fetching emails from folder: {}", folderName);
-        List<Email> emails = new ArrayList<>();
+    public FetchResult fetchEmailsFromFolder(ImapConnection imapConnection, String folderName) {
+        logger.info("🔍 Fetching emails from {}/{}", imapConnection.getUsername(), folderName);
+        FetchResult result = FetchResult.EMPTY;
         
         try {
-            Properties props = new Properties();
-            props.put("mail.store.protocol", "imaps");
-            props.put("mail.imaps.host", emailHost);
-            props.put("mail.imaps.port", emailPort);
-            props.put("mail.imaps.ssl.enable", true);
-            
-            Session session = Session.getInstance(props);
-            Store store = session.getStore("imaps");
-            store.connect(emailHost, emailUsername, emailPassword);
+            Folder folder = imapConnection.openFolder(folderName);
             
-            Folder folder = store.getFolder("INBOX");
-            folder.open(Folder.READ_ONLY);
-            
-            Message[] messages = folder.getMessages();
-            logger.info("📧 Found {} messages in folder", messages.length);
-            
-            // Get only unread messages for processing
-            for (Message message : messages) {
-                if (!message.isSet(Flags.Flag.SEEN)) {
-                    Email email = convertToEmail(message);
-                    emails.add(email);
-                    logger.info("📨 Converted message: {} from {}", email.getSubject(), email.getFromAddress());
+            if (incrementalFetch && folder instanceof UIDFolder) {
+                result = fetchIncremental(imapConnection, folder);
+            } else {
+                Message[] messages = folder.getMessages();
+                logger.info("📧 Found {} messages in folder", messages.length);
+                
+                FetchProfile flagsProfile = new FetchProfile();
+                flagsProfile.add(FetchProfile.Item.FLAGS);
+                folder.fetch(messages, flagsProfile);
+                
+                // Get only unread messages for processing
+                List<Message> unread = new ArrayList<>();
+                for (Message message : messages) {
+                    if (!message.isSet(Flags.Flag.SEEN)) {
+                        unread.add(message);
+                    }
                 }
+                result = new FetchResult(convertBatch(folder, imapConnection.getUsername(), unread, null), Map.of(), null, 0L, -1L);
             }
             
-            folder.close(false);
-            store.close();
-            
-            logger.info("✅ Successfully fetched {} new emails", emails.size());
+            logger.info("✅ Successfully fetched {} new emails", result.getEmails().size());
             
         } catch (Exception e) {
             logger.error("❌ Error fetching emails: {}", e.getMessage(), e);
+            // Drop the cached connection so the next poll reconnects cleanly
+            imapConnection.invalidate();
         }
         
+        return result;
+    }
+    
+    /**
+     * Fetches only messages whose UID is above the stored watermark for this folder.
+     * When the server reports a different UIDVALIDITY the stored UIDs no longer
+     * identify the same messages, so we fall back to a full resync of unread mail.
+     *
+     * The watermark is not moved here: the caller commits it with
+     * {@link #commitWatermark} once the fetched emails are stored, so mail still
+     * queued in memory when the node stops is fetched again.
+     */
+    private FetchResult fetchIncremental(ImapConnection imapConnection, Folder folder) throws MessagingException {
+        UIDFolder uidFolder = (UIDFolder) folder;
+        String mailboxKey = imapConnection.getUsername() + ":" + folder.getFullName();
+        long uidValidity = uidFolder.getUIDValidity();
+        
+        MailboxWatermark watermark = watermarkRepository.findByMailboxKey(mailboxKey)
+            .orElseGet(() -> new MailboxWatermark(mailboxKey, uidValidity));
+        
+        Message[] candidates;
+        long highestUid;
+        
+        if (watermark.isValidFor(uidValidity)) {
+            highestUid = watermark.getLastUid();
+            candidates = uidFolder.getMessagesByUID(highestUid + 1, UIDFolder.LASTUID);
+            logger.info("📧 Incremental fetch above UID {} returned {} candidates", highestUid, candidates.length);
+        } else {
+            logger.warn("🔁 Full resync of {} (stored UIDVALIDITY: {}, server UIDVALIDITY: {})",
+                mailboxKey, watermark.getUidValidity(), uidValidity);
+            watermark.resetTo(uidValidity);
+            // Read UIDNEXT before searching so mail arriving mid-resync is picked up next poll
+            highestUid = resolveHighestUid(folder, uidFolder);
+            candidates = folder.search(new FlagTerm(new Flags(Flags.Flag.SEEN), false));
+            logger.info("📧 Full resync found {} unread messages", candidates.length);
+        }
+        
+        FetchProfile profile = new FetchProfile();
+        profile.add(UIDFolder.FetchProfileItem.UID);
+        profile.add(FetchProfile.Item.FLAGS);
+        folder.fetch(candidates, profile);
+        
+        long floor = watermark.getLastUid() != null ? watermark.getLastUid() : 0L;
+        List<Message> unread = new ArrayList<>();
+        
+        for (Message message : candidates) {
+            long uid = uidFolder.getUID(message);
+            // "n:*" always returns the newest message, even when its UID is below n
+            if (uid <= floor) {
+                continue;
+            }
+            highestUid = Math.max(highestUid, uid);
+            
+            if (!message.isSet(Flags.Flag.SEEN)) {
+                unread.add(message);
+            }
+        }
+        
+        Map<Email, Long> uids = new IdentityHashMap<>();
+        List<Email> emails = convertBatch(folder, imapConnection.getUsername(), unread, uids);
+        return new FetchResult(emails, uids, mailboxKey, uidValidity, highestUid);
+    }
+    
+    /**
+     * Records that every message in the folder up to {@code uid} has been stored,
+     * so the next incremental fetch starts above it.
+     */
+    public void commitWatermark(String mailboxKey, long uidValidity, long uid) {
+        MailboxWatermark watermark = watermarkRepository.findByMailboxKey(mailboxKey)
+            .orElseGet(() -> new MailboxWatermark(mailboxKey, uidValidity));
+        if (watermark.getUidValidity() != uidValidity) {
+            watermark.resetTo(uidValidity);
+        }
+        watermark.advanceTo(uid);
+        watermarkRepository.save(watermark);
+        logger.debug("💾 Watermark for {} now at UID {} (UIDVALIDITY {})", mailboxKey, watermark.getLastUid(), uidValidity);
+    }
+    
+    /**
+     * Converts a batch of messages after prefetching everything {@link #convertToEmail}
+     * reads in a single FETCH: envelope (Message-ID, subject, addresses, INTERNALDATE),
+     * flags, the non-envelope headers we need and the BODYSTRUCTURE. Body sections
+     * are still loaded lazily, and only for the text parts we actually extract.
+     */
+    private List<Email> convertBatch(Folder folder, String mailboxAddress, List<Message> messages,
+                                     Map<Email, Long> uids) throws MessagingException {
+        List<Email> emails = new ArrayList<>(messages.size());
+        if (messages.isEmpty()) {
+            return emails;
+        }
+        
+        long startNanos = System.nanoTime();
+        
+        FetchProfile profile = new FetchProfile();
+        profile.add(FetchProfile.Item.ENVELOPE);
+        profile.add(FetchProfile.Item.FLAGS);
+        profile.add(FetchProfile.Item.CONTENT_INFO);
+        for (String header : PREFETCHED_HEADERS) {
+            profile.add(header);
+        }
+        folder.fetch(messages.toArray(new Message[0]), profile);
+        
+        long prefetchNanos = System.nanoTime() - startNanos;
+        
+        // Message-IDs come with the envelope, so mail we already have is skipped before
+        // its body is read or its attachments downloaded (a full scan or resync sees it all again)
+        List<String> messageIds = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            String messageId = envelopeMessageId(message);
+            if (messageId != null) {
+                messageIds.add(messageId);
+            }
+        }
+        Set<String> known = messageIds.isEmpty() ? Set.of() : messageDeduplicationService.findKnown(messageIds);
+        
+        int skipped = 0;
+        for (Message message : messages) {
+            String messageId = envelopeMessageId(message);
+            if (messageId != null && known.contains(messageId)) {
+                skipped++;
+                continue;
+            }
+            Email email = convertToEmail(message, mailboxAddress);
+            emails.add(email);
+            if (uids != null) {
+                // Already fetched with the candidates, so no round trip
+                uids.put(email, ((UIDFolder) folder).getUID(message));
+            }
+            logger.info("📨 Converted message: {} from {}", email.getSubject(), email.getFromAddress());
+        }
+        
+        long totalMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        logger.info("⏱️ Converted {} messages in {} ms (prefetch {} ms, {} ms per 1000 messages, {} already ingested)",
+            messages.size() - skipped, totalMillis, prefetchNanos / 1_000_000, totalMillis * 1000 / messages.size(), skipped);
+        
         return emails;
     }
     
+    private long resolveHighestUid(Folder folder, UIDFolder uidFolder) throws MessagingException {
+        long uidNext = uidFolder.getUIDNext();
+        if (uidNext > 0) {
+            return uidNext - 1;
+        }
+        int count = folder.getMessageCount();
+        return count > 0 ? uidFolder.getUID(folder.getMessage(count)) : 0L;
+    }
+    
     public void sendEmail(Email email) {
         logger.info("📤 Sending email: {} to {}", email.getSubject(), email.getToAddress());
         
         try {
-            Properties props = new Properties();
-            props.put("mail.smtp.host", "smtp.office365.com");
-            props.put("mail.smtp.port", "587");
-            props.put("mail.smtp.auth", "true");
-            props.put("mail.smtp.starttls.enable", "true");
-            
-            Session session = Session.getInstance(props, new Authenticator() {
-                @Override
-                protected PasswordAuthentication getPasswordAuthentication() {
-                    return new PasswordAuthentication(emailUsername, emailPassword);
-                }
-            });
-            
-            MimeMessage message = new MimeMessage(session);
-            message.setFrom(new InternetAddress(emailUsername));
-            message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(email.getToAddress()));
-            message.setSubject(email.getSubject());
-            
-            if (email.getHtmlContent() != null) {
-                message.setContent(email.getHtmlContent(), "text/html");
-            } else {
-                message.setText(email.getTextContent());
-            }
-            
-            Transport.send(message);
-            email.setSentDate(LocalDateTime.now());
-            email.setDirection(Email.EmailDirection.OUTBOUND);
+            smtpTransportPool.send(buildMimeMessage(email));
+            markSent(email);
             
             logger.info("✅ Email sent successfully: {}", email.getSubject());
             
@@ -113,52 +273,172 @@ public class OutlookEmailService {
         }
     }
     
-    private Email convertToEmail(Message message) throws MessagingException {
-        Email email = new Email();
+    /**
+     * Sends several replies over one pooled SMTP connection. Returns the emails that
+     * could not be sent, mapped to the reason; the rest are marked as sent. Never
+     * throws: any error building or sending a message counts as that message failing.
+     */
+    public Map<Email, Exception> sendEmails(List<Email> emails) {
+        logger.info("📤 Sending batch of {} emails", emails.size());
+        Map<Email, Exception> failures = new IdentityHashMap<>();
+        List<Email> built = new ArrayList<>(emails.size());
+        List<MimeMessage> messages = new ArrayList<>(emails.size());
+        
+        for (Email email : emails) {
+            try {
+                messages.add(buildMimeMessage(email));
+                built.add(email);
+            } catch (Exception e) {
+                logger.warn("⚠️ Could not build reply {}: {}", email.getMessageId(), e.getMessage());
+                failures.put(email, e);
+            }
+        }
+        
+        if (messages.isEmpty()) {
+            return failures;
+        }
+        
+        try {
+            List<MessagingException> results = smtpTransportPool.sendAll(messages);
+            for (int i = 0; i < built.size(); i++) {
+                if (results.get(i) == null) {
+                    markSent(built.get(i));
+                } else {
+                    failures.put(built.get(i), results.get(i));
+                }
+            }
+        } catch (MessagingException e) {
+            logger.error("❌ Could not obtain SMTP connection: {}", e.getMessage());
+            built.forEach(email -> failures.put(email, e));
+        } catch (RuntimeException e) {
+            logger.error("❌ Sending batch failed: {}", e.getMessage(), e);
+            built.forEach(email -> failures.put(email, e));
+        }
         
-        email.setMessageId(message.getHeader("Message-ID") != null ? message.getHeader("Message-ID")[0] : "unknown");
-        email.setSubject(message.getSubject());
-        email.setFromAddress(message.getFrom()[0].toString());
+        logger.info("✅ Batch sent: {} succeeded, {} failed", emails.size() - failures.size(), failures.size());
+        return failures;
+    }
+    
+    private MimeMessage buildMimeMessage(Email email) throws MessagingException {
+        MimeMessage message = new MimeMessage(smtpTransportPool.getSession()) {
+            @Override
+            protected void updateMessageID() throws MessagingException {
+                // Keep the id the outbox assigned so customer replies can be threaded back to the case
+                if (email.getMessageId() != null && email.getMessageId().startsWith("<")) {
+                    setHeader("Message-ID", email.getMessageId());
+                } else {
+                    super.updateMessageID();
+                }
+            }
+        };
+        message.setFrom(new InternetAddress(emailUsername));
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(email.getToAddress()));
+        message.setSubject(email.getSubject());
         
-        if (message.getRecipients(Message.RecipientType.TO) != null) {
-            email.setToAddress(message.getRecipients(Message.RecipientType.TO)[0].toString());
+        if (email.getInReplyTo() != null) {
+            message.setHeader("In-Reply-To", email.getInReplyTo());
         }
+        if (email.getReferences() != null) {
+            message.setHeader("References", MimeUtility.fold(12, email.getReferences()));
+        }
+        
+        if (email.getHtmlContent() != null) {
+            message.setContent(email.getHtmlContent(), "text/html");
+        } else {
+            message.setText(email.getTextContent());
+        }
+        return message;
+    }
+    
+    private void markSent(Email email) {
+        email.setSentDate(LocalDateTime.now());
+        email.setDirection(Email.EmailDirection.OUTBOUND);
+    }
+    
+    private Email convertToEmail(Message message, String mailboxAddress) throws MessagingException {
+        Email email = new Email();
+        
+        email.setMessageId(envelopeMessageId(message));
+        // Subject, From and To are NOT NULL columns; mail without them is still stored
+        String subject = message.getSubject();
+        email.setSubject(subject != null && !subject.isBlank() ? truncate(subject, MAX_COLUMN_LENGTH) : NO_SUBJECT);
+        
+        Address[] from = message.getFrom();
+        email.setFromAddress(from != null && from.length > 0 ? truncate(from[0].toString(), MAX_COLUMN_LENGTH) : UNKNOWN_SENDER);
         
-        email.setReceivedDate(message.getReceivedDate() != null ? 
-            message.getReceivedDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime() : 
+        // BCC and list deliveries may have no To; it was delivered to this mailbox
+        Address[] toRecipients = message.getRecipients(Message.RecipientType.TO);
+        email.setToAddress(toRecipients != null && toRecipients.length > 0 ?
+            truncate(toRecipients[0].toString(), MAX_COLUMN_LENGTH) : mailboxAddress);
+        email.setTargetQueueType(listQueueType(toRecipients, message.getRecipients(Message.RecipientType.CC)));
+        
+        Date receivedDate = message.getReceivedDate();
+        email.setReceivedDate(receivedDate != null ? 
+            receivedDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime() : 
             LocalDateTime.now());
         
         email.setDirection(Email.EmailDirection.INBOUND);
         email.setPriority(convertPriority(message));
+        email.setInReplyTo(firstHeader(message, "In-Reply-To", MAX_IN_REPLY_TO_LENGTH));
+        email.setReferences(firstHeader(message, "References", MAX_REFERENCES_LENGTH));
         
         try {
-            if (message.isMimeType("text/plain")) {
-                email.setTextContent((String) message.getContent());
-            } else if (message.isMimeType("text/html")) {
-                email.setHtmlContent((String) message.getContent());
-            } else if (message.isMimeType("multipart/*")) {
-                extractMultipartContent(message, email);
-            }
+            mimeContentExtractor.extract(message, email);
         } catch (Exception e) {
             logger.warn("Could not extract email content: {}", e.getMessage());
             email.setTextContent("Content could not be extracted");
         }
         
+        if (email.getMessageId() == null) {
+            email.setMessageId(MessageDeduplicationService.syntheticMessageId(email, message.getSentDate()));
+            logger.debug("🔖 Message without Message-ID assigned synthetic id {}", email.getMessageId());
+        }
+        
         return email;
     }
     
-    private void extractMultipartContent(Message message, Email email) throws Exception {
-        Multipart multipart = (Multipart) message.getContent();
-        
-        for (int i = 0; i < multipart.getCount(); i++) {
-            BodyPart bodyPart = multipart.getBodyPart(i);
-            
-            if (bodyPart.isMimeType("text/plain")) {
-                email.setTextContent((String) bodyPart.getContent());
-            } else if (bodyPart.isMimeType("text/html")) {
-                email.setHtmlContent((String) bodyPart.getContent());
+    /**
+     * The queue of the first configured distribution list the message was
+     * addressed to, or null to leave it to the classifier.
+     */
+    private WorkQueueType listQueueType(Address[]... recipientGroups) {
+        if (listQueueTypes.isEmpty()) {
+            return null;
+        }
+        for (Address[] recipients : recipientGroups) {
+            if (recipients == null) {
+                continue;
+            }
+            for (Address recipient : recipients) {
+                if (recipient instanceof InternetAddress address && address.getAddress() != null) {
+                    WorkQueueType queueType = listQueueTypes.get(address.getAddress().toLowerCase(Locale.ROOT));
+                    if (queueType != null) {
+                        return queueType;
+                    }
+                }
             }
         }
+        return null;
+    }
+    
+    private static String envelopeMessageId(Message message) throws MessagingException {
+        // Message-ID is part of the IMAP ENVELOPE, so read it from there rather than via a header lookup
+        return message instanceof MimeMessage mimeMessage ? mimeMessage.getMessageID() : null;
+    }
+    
+    private static String truncate(String value, int maxLength) {
+        return value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+    
+    private String firstHeader(Message message, String name, int maxLength) throws MessagingException {
+        String[] values = message.getHeader(name);
+        if (values == null || values.length == 0) {
+            return null;
+        }
+        // Folded headers keep their CRLF; collapse so the value fits one column.
+        // Keep the tail: the most recent ids come last, and a cut id no longer parses.
+        String value = values[0].replaceAll("\\s+", " ").trim();
+        return value.length() > maxLength ? value.substring(value.length() - maxLength) : value;
     }
     
     private Email.EmailPriority convertPriority(Message message) {
@@ -177,4 +457,33 @@ public class OutlookEmailService {
         }
         return Email.EmailPriority.NORMAL;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Emails from one fetch. For an incremental fetch it also carries each email's
+     * UID and the highest UID examined, which the caller commits as the watermark
+     * once everything below it is stored; {@code highestUid} is -1 otherwise.
+     */
+    public static class FetchResult {
+        static final FetchResult EMPTY = new FetchResult(List.of(), Map.of(), null, 0L, -1L);
+        
+        private final List<Email> emails;
+        private final Map<Email, Long> uids;
+        private final String mailboxKey;
+        private final long uidValidity;
+        private final long highestUid;
+        
+        public FetchResult(List<Email> emails, Map<Email, Long> uids, String mailboxKey, long uidValidity, long highestUid) {
+            this.emails = emails;
+            this.uids = uids;
+            this.mailboxKey = mailboxKey;
+            this.uidValidity = uidValidity;
+            this.highestUid = highestUid;
+        }
+        
+        public List<Email> getEmails() { return emails; }
+        public Long getUid(Email email) { return uids.get(email); }
+        public String getMailboxKey() { return mailboxKey; }
+        public long getUidValidity() { return uidValidity; }
+        public long getHighestUid() { return highestUid; }
+    }
+}
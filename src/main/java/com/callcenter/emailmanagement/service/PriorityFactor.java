@@ -0,0 +1,25 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.WorkQueue;
+
+import java.time.LocalDateTime;
+
+/**
+ * One contribution to a queue item's priority score. Every factor bean is picked
+ * up by {@link PriorityScoringEngine}; the item's score is the sum of all factors.
+ */
+public interface PriorityFactor {
+
+    String getName();
+
+    int score(WorkQueue item, LocalDateTime now);
+
+    /**
+     * When this factor's contribution to {@code item} will next change on its own,
+     * or null if only an event (a reopen, a priority change) can change it. The
+     * engine rescores the item at the earliest such time across all factors.
+     */
+    default LocalDateTime nextChange(WorkQueue item, LocalDateTime now) {
+        return null;
+    }
+}
@@ -0,0 +1,179 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.WorkQueue;
+import com.callcenter.emailmanagement.repository.WorkQueueRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scores queue items as the sum of every {@link PriorityFactor} bean.
+ *
+ * Scores are stored on the item, and items whose score changed are handed to the
+ * {@link QueueDispatcher} so its in-memory order follows. Alongside the score the engine stores {@code nextRescoreAt}, the
+ * earliest time any time-based factor will change; a scheduled pass rescores
+ * only the items that have reached it, and events that change a case's inputs
+ * rescore that case's items directly. Nothing ever rescores the whole queue.
+ */
+@Service
+public class PriorityScoringEngine {
+    private static final Logger logger = LoggerFactory.getLogger(PriorityScoringEngine.class);
+
+    @Autowired
+    private List<PriorityFactor> factors;
+
+    @Autowired
+    private WorkQueueRepository workQueueRepository;
+    
+    @Autowired
+    private QueueDispatcher queueDispatcher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.priority.rescore-batch-size:500}")
+    private int rescoreBatchSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicLong rescored = new AtomicLong();
+    private final AtomicLong reordered = new AtomicLong();
+
+    @PostConstruct
+    public void initialize() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        List<String> names = new ArrayList<>();
+        for (PriorityFactor factor : factors) {
+            names.add(factor.getName());
+        }
+        logger.info("⚖️ Priority scoring with factors {}", names);
+    }
+
+    /**
+     * Scores an item in place. Returns true if the score changed.
+     */
+    public boolean score(WorkQueue item) {
+        return score(item, LocalDateTime.now());
+    }
+
+    /**
+     * Rescores the items whose time-based factors have moved on since they were
+     * last scored. If an agent claims one of them mid-pass, the versioned write
+     * fails and the whole batch is left for the next pass.
+     */
+    @Scheduled(fixedDelayString = "${app.priority.rescore-interval-ms:60000}")
+    public void rescoreDue() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> rescoreDueBatch());
+        } catch (ObjectOptimisticLockingFailureException e) {
+            logger.info("⚖️ Queue items were claimed during the rescore - retrying on the next pass");
+        }
+    }
+
+    private void rescoreDueBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<WorkQueue> due = workQueueRepository.findDueForRescore(now, PageRequest.of(0, rescoreBatchSize));
+        if (due.isEmpty()) {
+            return;
+        }
+
+        List<WorkQueue> changed = new ArrayList<>();
+        for (WorkQueue item : due) {
+            if (score(item, now)) {
+                changed.add(item);
+            }
+        }
+        queueDispatcher.reprioritize(changed);
+
+        rescored.addAndGet(due.size());
+        reordered.addAndGet(changed.size());
+        logger.debug("⚖️ Rescored {} due queue items, {} changed score", due.size(), changed.size());
+        if (due.size() == rescoreBatchSize) {
+            logger.info("⚖️ Rescore batch full ({} items) - the rest follow on the next pass", rescoreBatchSize);
+        }
+    }
+
+    /**
+     * Rescores a case's pending queue items after something other than time changed
+     * one of its inputs.
+     */
+    @Transactional
+    public void rescoreCase(Long caseId) {
+        List<WorkQueue> changed = new ArrayList<>();
+        for (WorkQueue item : workQueueRepository.findByCaseItemIdAndStatus(caseId, WorkQueue.QueueStatus.PENDING)) {
+            rescored.incrementAndGet();
+            if (score(item)) {
+                reordered.incrementAndGet();
+                changed.add(item);
+            }
+        }
+        queueDispatcher.reprioritize(changed);
+    }
+
+    public Map<String, Integer> explain(WorkQueue item) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Integer> breakdown = new LinkedHashMap<>();
+        for (PriorityFactor factor : factors) {
+            breakdown.put(factor.getName(), factor.score(item, now));
+        }
+        return breakdown;
+    }
+
+    public ScoringMetrics getMetrics() {
+        List<String> names = new ArrayList<>();
+        for (PriorityFactor factor : factors) {
+            names.add(factor.getName());
+        }
+        return new ScoringMetrics(names, rescored.get(), reordered.get());
+    }
+
+    private boolean score(WorkQueue item, LocalDateTime now) {
+        int total = 0;
+        LocalDateTime next = null;
+
+        for (PriorityFactor factor : factors) {
+            total += factor.score(item, now);
+            LocalDateTime change = factor.nextChange(item, now);
+            if (change != null && (next == null || change.isBefore(next))) {
+                next = change;
+            }
+        }
+
+        boolean changed = item.getPriorityScore() == null || item.getPriorityScore() != total;
+        item.setPriorityScore(total);
+        item.setNextRescoreAt(next);
+        return changed;
+    }
+
+    public static class ScoringMetrics {
+        private final List<String> factors;
+        private final long rescored;
+        private final long reordered;
+
+        public ScoringMetrics(List<String> factors, long rescored, long reordered) {
+            this.factors = factors;
+            this.rescored = rescored;
+            this.reordered = reordered;
+        }
+
+        public List<String> getFactors() { return factors; }
+        public long getRescored() { return rescored; }
+        public long getReordered() { return reordered; }
+    }
+}
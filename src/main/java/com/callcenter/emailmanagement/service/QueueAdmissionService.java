@@ -0,0 +1,221 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.Email;
+import com.callcenter.emailmanagement.domain.model.WorkQueue;
+import com.callcenter.emailmanagement.domain.model.WorkQueueType;
+import com.callcenter.emailmanagement.repository.EmailRepository;
+import com.callcenter.emailmanagement.repository.WorkQueueRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Enforces {@code app.queue.max-queue-depth}. Each queue's pending depth is kept
+ * in memory, reserved atomically as cases are admitted and re-read from the
+ * database on a schedule. Emails for a queue that is full are stored as deferred
+ * (with their original receipt time) and admitted oldest-first once agents have
+ * worked the queue back below the limit. Nodes admit the shared backlog
+ * concurrently; each deferred email is claimed when its case is created.
+ */
+@Service
+public class QueueAdmissionService {
+    private static final Logger logger = LoggerFactory.getLogger(QueueAdmissionService.class);
+
+    @Autowired
+    private WorkQueueRepository workQueueRepository;
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Autowired
+    private CaseManagementService caseManagementService;
+
+    @Autowired
+    private AttachmentStore attachmentStore;
+
+    @Value("${app.queue.max-queue-depth:1000}")
+    private int maxQueueDepth;
+
+    @Value("${app.queue.admission-batch-size:100}")
+    private int admissionBatchSize;
+
+    private final Map<WorkQueueType, AtomicInteger> depths = new EnumMap<>(WorkQueueType.class);
+    private final Map<WorkQueueType, AtomicInteger> backlogs = new EnumMap<>(WorkQueueType.class);
+
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicLong admittedFromBacklog = new AtomicLong();
+
+    public QueueAdmissionService() {
+        // Fully populated up front so the maps are only ever read concurrently
+        for (WorkQueueType type : WorkQueueType.values()) {
+            depths.put(type, new AtomicInteger());
+            backlogs.put(type, new AtomicInteger());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        refreshDepths();
+        logger.info("🚧 Queue admission control active (max depth {} per queue)", maxQueueDepth);
+    }
+
+    /**
+     * Reserves a slot for a new case in the queue. Fails when the queue is at its
+     * limit, and also while older deferred mail is still waiting, so new arrivals
+     * never overtake the backlog.
+     */
+    public boolean tryAdmit(WorkQueueType queueType) {
+        if (backlogs.get(queueType).get() > 0) {
+            return false;
+        }
+        return reserve(queueType);
+    }
+
+    /**
+     * Hands back a slot reserved by {@link #tryAdmit} whose case was never created.
+     */
+    public void release(WorkQueueType queueType) {
+        depths.get(queueType).decrementAndGet();
+    }
+
+    /**
+     * Records the email as received but holds back case creation. The receipt time
+     * is kept so the case's SLA clock starts from arrival once it is admitted.
+     */
+    public void defer(Email email, WorkQueueType queueType) {
+        email.setTargetQueueType(queueType);
+        email.setDeferredSince(LocalDateTime.now());
+        if (email.getId() == null) {
+            attachmentStore.retain(email);
+        }
+        emailRepository.save(email);
+
+        backlogs.get(queueType).incrementAndGet();
+        deferred.incrementAndGet();
+        logger.warn("🚧 {} queue is at capacity - deferred email {} ({} waiting)",
+            queueType, email.getMessageId(), backlogs.get(queueType).get());
+    }
+
+    @Scheduled(fixedDelayString = "${app.queue.admission-interval-ms:5000}")
+    public void admitDeferred() {
+        refreshDepths();
+
+        for (WorkQueueType queueType : WorkQueueType.values()) {
+            if (backlogs.get(queueType).get() == 0) {
+                continue;
+            }
+
+            int room = maxQueueDepth - depths.get(queueType).get();
+            if (room <= 0) {
+                continue;
+            }
+
+            List<Email> batch = emailRepository.findDeferredByQueueType(queueType,
+                PageRequest.of(0, Math.min(room, admissionBatchSize)));
+
+            int reserved = 0;
+            while (reserved < batch.size() && reserve(queueType)) {
+                reserved++;
+            }
+            if (reserved == 0) {
+                continue;
+            }
+
+            try {
+                // Emails another node admitted first are skipped, and their slots handed back
+                int admitted = caseManagementService.createCasesFromEmails(batch.subList(0, reserved)).size();
+                depths.get(queueType).addAndGet(admitted - reserved);
+                backlogs.get(queueType).addAndGet(-reserved);
+                admittedFromBacklog.addAndGet(admitted);
+                logger.info("🚦 Admitted {} deferred emails into {} ({} still waiting)",
+                    admitted, queueType, backlogs.get(queueType).get());
+            } catch (Exception e) {
+                depths.get(queueType).addAndGet(-reserved);
+                logger.error("❌ Failed to admit {} deferred emails into {}: {}", reserved, queueType, e.getMessage(), e);
+            }
+        }
+    }
+
+    public AdmissionMetrics getMetrics() {
+        List<QueueAdmission> queues = new ArrayList<>();
+        for (WorkQueueType queueType : WorkQueueType.values()) {
+            queues.add(new QueueAdmission(queueType, depths.get(queueType).get(), maxQueueDepth,
+                backlogs.get(queueType).get()));
+        }
+        return new AdmissionMetrics(deferred.get(), admittedFromBacklog.get(), queues);
+    }
+
+    private boolean reserve(WorkQueueType queueType) {
+        AtomicInteger depth = depths.get(queueType);
+        while (true) {
+            int current = depth.get();
+            if (current >= maxQueueDepth) {
+                return false;
+            }
+            if (depth.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Agents drain queues without going through this service, so the cached
+     * counts are periodically corrected from the database.
+     */
+    private void refreshDepths() {
+        for (WorkQueueType queueType : WorkQueueType.values()) {
+            depths.get(queueType).set((int) workQueueRepository.countByQueueTypeAndStatus(queueType, WorkQueue.QueueStatus.PENDING));
+            backlogs.get(queueType).set((int) emailRepository.countByDeferredSinceIsNotNullAndTargetQueueType(queueType));
+        }
+    }
+
+    public static class AdmissionMetrics {
+        private final long deferred;
+        private final long admittedFromBacklog;
+        private final List<QueueAdmission> queues;
+
+        public AdmissionMetrics(long deferred, long admittedFromBacklog, List<QueueAdmission> queues) {
+            this.deferred = deferred;
+            this.admittedFromBacklog = admittedFromBacklog;
+            this.queues = queues;
+        }
+
+        public long getDeferred() { return deferred; }
+        public long getAdmittedFromBacklog() { return admittedFromBacklog; }
+        public List<QueueAdmission> getQueues() { return queues; }
+    }
+
+    public static class QueueAdmission {
+        private final WorkQueueType queueType;
+        private final int depth;
+        private final int maxDepth;
+        private final int deferredBacklog;
+
+        public QueueAdmission(WorkQueueType queueType, int depth, int maxDepth, int deferredBacklog) {
+            this.queueType = queueType;
+            this.depth = depth;
+            this.maxDepth = maxDepth;
+            this.deferredBacklog = deferredBacklog;
+        }
+
+        public WorkQueueType getQueueType() { return queueType; }
+        public int getDepth() { return depth; }
+        public int getMaxDepth() { return maxDepth; }
+        public int getDeferredBacklog() { return deferredBacklog; }
+        public boolean isAtCapacity() { return depth >= maxDepth; }
+    }
+}
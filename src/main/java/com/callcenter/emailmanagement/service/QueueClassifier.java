@@ -0,0 +1,116 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.config.RoutingRulesProperties;
+import com.callcenter.emailmanagement.domain.model.WorkQueueType;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Routes emails to a queue using the keyword rules in {@code app.routing.rules}.
+ * All keywords for all queues are compiled into one {@link KeywordAutomaton}, so
+ * subject and body are each scanned once. Keywords match whole words only, so list
+ * the inflections that should count. Every distinct keyword found adds the
+ * section's weight to its queue's score; the highest score wins, ties go to the
+ * queue with the higher priority, and a best score below {@code min-score} falls back
+ * to the default queue.
+ */
+@Component
+public class QueueClassifier {
+    private static final Logger logger = LoggerFactory.getLogger(QueueClassifier.class);
+
+    @Autowired
+    private RoutingRulesProperties routingRules;
+
+    private KeywordAutomaton automaton;
+    private List<String> keywords;
+    private WorkQueueType[] keywordQueues;
+
+    @PostConstruct
+    public void compile() {
+        List<String> compiledKeywords = new ArrayList<>();
+        List<WorkQueueType> compiledQueues = new ArrayList<>();
+
+        for (Map.Entry<WorkQueueType, List<String>> rule : routingRules.getRules().entrySet()) {
+            for (String keyword : rule.getValue()) {
+                if (keyword != null && !keyword.isBlank()) {
+                    compiledKeywords.add(keyword.trim().toLowerCase(Locale.ROOT));
+                    compiledQueues.add(rule.getKey());
+                }
+            }
+        }
+
+        keywords = compiledKeywords;
+        keywordQueues = compiledQueues.toArray(new WorkQueueType[0]);
+        automaton = new KeywordAutomaton(compiledKeywords);
+
+        logger.info("🧭 Queue classifier compiled {} keywords for {} queues (default: {})",
+            compiledKeywords.size(), routingRules.getRules().size(), routingRules.getDefaultQueue());
+    }
+
+    public Classification classify(CharSequence subject, CharSequence body) {
+        Map<WorkQueueType, Integer> scores = new EnumMap<>(WorkQueueType.class);
+        List<String> matched = new ArrayList<>();
+
+        scoreSection(subject, routingRules.getSubjectWeight(), scores, matched);
+        scoreSection(body, routingRules.getBodyWeight(), scores, matched);
+
+        WorkQueueType best = routingRules.getDefaultQueue();
+        int bestScore = 0;
+        for (Map.Entry<WorkQueueType, Integer> entry : scores.entrySet()) {
+            int score = entry.getValue();
+            if (score > bestScore || (score == bestScore && entry.getKey().getPriority() > best.getPriority())) {
+                best = entry.getKey();
+                bestScore = score;
+            }
+        }
+
+        if (bestScore < routingRules.getMinScore()) {
+            best = routingRules.getDefaultQueue();
+        }
+
+        return new Classification(best, bestScore, scores, matched);
+    }
+
+    private void scoreSection(CharSequence text, int weight, Map<WorkQueueType, Integer> scores, List<String> matched) {
+        BitSet seen = new BitSet(automaton.getKeywordCount());
+
+        automaton.scan(text, keyword -> {
+            // Repeating a keyword in a long body should not outweigh a subject hit
+            if (!seen.get(keyword)) {
+                seen.set(keyword);
+                scores.merge(keywordQueues[keyword], weight, Integer::sum);
+                matched.add(keywords.get(keyword));
+            }
+        });
+    }
+
+    public static class Classification {
+        private final WorkQueueType queueType;
+        private final int score;
+        private final Map<WorkQueueType, Integer> scores;
+        private final List<String> matchedKeywords;
+
+        public Classification(WorkQueueType queueType, int score, Map<WorkQueueType, Integer> scores,
+                              List<String> matchedKeywords) {
+            this.queueType = queueType;
+            this.score = score;
+            this.scores = scores;
+            this.matchedKeywords = matchedKeywords;
+        }
+
+        public WorkQueueType getQueueType() { return queueType; }
+        public int getScore() { return score; }
+        public Map<WorkQueueType, Integer> getScores() { return scores; }
+        public List<String> getMatchedKeywords() { return matchedKeywords; }
+    }
+}
@@ -0,0 +1,335 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.Agent;
+import com.callcenter.emailmanagement.domain.model.WorkQueue;
+import com.callcenter.emailmanagement.domain.model.WorkQueueType;
+import com.callcenter.emailmanagement.repository.AgentRepository;
+import com.callcenter.emailmanagement.repository.CaseRepository;
+import com.callcenter.emailmanagement.repository.WorkQueueRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps every pending work queue item in memory, one concurrent skip list per
+ * queue type ordered by priority score (highest first), then time in queue, then
+ * id. Picking the next candidate is a single {@code pollFirst()}: lock-free, and
+ * each item goes to exactly one caller on this node however many agents ask at
+ * once. The database is no longer sorted on every request.
+ *
+ * Other nodes hold their own copies, so a candidate is only handed out once the
+ * conditional claim update in {@link WorkQueueRepository#claim} has succeeded; a
+ * candidate another node claimed first is dropped and the next one tried. When
+ * the local queue is empty, candidates are read from the database, which covers
+ * items queued on other nodes since the last resync.
+ *
+ * The claim, the case's assignment and the agent's case count are written in one
+ * transaction, so a row is never left ASSIGNED for a case nobody owns. The count
+ * only goes up while the agent is AVAILABLE and below {@code maxConcurrentCases};
+ * otherwise the transaction is rolled back, the item stays PENDING and the claim
+ * returns empty.
+ *
+ * The lists are loaded from {@code work_queue} at startup and topped up every
+ * {@code resync-interval-ms}. New items and score changes made on this node are
+ * applied once their transaction commits.
+ */
+@Service
+public class QueueDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(QueueDispatcher.class);
+
+    private static final Comparator<QueuedItem> DISPATCH_ORDER = Comparator
+        .comparingInt(QueuedItem::getPriorityScore).reversed()
+        .thenComparingLong(QueuedItem::getQueuedAt)
+        .thenComparingLong(QueuedItem::getId);
+
+    @Autowired
+    private WorkQueueRepository workQueueRepository;
+
+    @Autowired
+    private CaseRepository caseRepository;
+
+    @Autowired
+    private AgentRepository agentRepository;
+
+    @Autowired
+    private AgentAvailabilityIndex agentAvailabilityIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.queue.dispatcher.database-candidates:20}")
+    private int databaseCandidates;
+
+    private final Map<WorkQueueType, ConcurrentSkipListSet<QueuedItem>> queues = new EnumMap<>(WorkQueueType.class);
+
+    // The entry currently in a queue for each item id, so a rescore can replace it
+    private final Map<Long, QueuedItem> queuedById = new ConcurrentHashMap<>();
+
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong agentUnavailable = new AtomicLong();
+
+    public QueueDispatcher() {
+        for (WorkQueueType queueType : WorkQueueType.values()) {
+            queues.put(queueType, new ConcurrentSkipListSet<>(DISPATCH_ORDER));
+        }
+    }
+
+    @PostConstruct
+    public void initialize() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        // Its own transaction: rolling back a claim for an unavailable agent must not doom the caller's
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        int loaded = resync();
+        logger.info("📥 Queue dispatcher loaded {} pending items {}", loaded, depths());
+    }
+
+    /**
+     * Adds pending items this node does not hold yet, such as those queued on
+     * other nodes. Entries claimed elsewhere are not removed here; a claim attempt
+     * drops them.
+     */
+    @Scheduled(initialDelayString = "${app.queue.dispatcher.resync-interval-ms:30000}",
+               fixedDelayString = "${app.queue.dispatcher.resync-interval-ms:30000}")
+    public int resync() {
+        int added = 0;
+        for (Object[] row : workQueueRepository.findPendingSummaries()) {
+            if (add(toQueuedItem(row))) {
+                added++;
+            }
+        }
+        if (added > 0) {
+            logger.debug("📥 Resync added {} pending items", added);
+        }
+        return added;
+    }
+
+    /**
+     * Makes newly saved queue items claimable once the current transaction commits.
+     */
+    public void enqueue(List<WorkQueue> items) {
+        List<QueuedItem> entries = snapshot(items);
+        TransactionCallbacks.afterCommit(() -> entries.forEach(this::add));
+    }
+
+    /**
+     * Moves rescored items to their new position once the current transaction
+     * commits. Items claimed in the meantime stay claimed.
+     */
+    public void reprioritize(List<WorkQueue> items) {
+        List<QueuedItem> entries = snapshot(items);
+        TransactionCallbacks.afterCommit(() -> {
+            for (QueuedItem entry : entries) {
+                queuedById.computeIfPresent(entry.getId(), (id, current) -> {
+                    ConcurrentSkipListSet<QueuedItem> queue = queues.get(current.getQueueType());
+                    if (!queue.remove(current)) {
+                        // Claimed since the lookup
+                        return null;
+                    }
+                    queues.get(entry.getQueueType()).add(entry);
+                    return entry;
+                });
+            }
+        });
+    }
+
+    /**
+     * Claims the highest-priority item of the queue for the agent, or returns empty
+     * if the queue has nothing left on any node, the agent is already at
+     * {@code maxConcurrentCases} or the agent is no longer AVAILABLE.
+     */
+    public Optional<QueuedItem> claim(WorkQueueType queueType, Agent agent) {
+        QueuedItem item;
+        while ((item = queues.get(queueType).pollFirst()) != null) {
+            queuedById.remove(item.getId(), item);
+            ClaimResult result = claimRow(item, agent);
+            if (result == ClaimResult.CLAIMED) {
+                return Optional.of(item);
+            }
+            if (result == ClaimResult.AGENT_UNAVAILABLE) {
+                add(item);
+                return Optional.empty();
+            }
+        }
+        return claimFromDatabase(queueType, agent);
+    }
+
+    /**
+     * Claims straight from the database, skipping this node's copy. Used when the
+     * local queue is empty.
+     */
+    public Optional<QueuedItem> claimFromDatabase(WorkQueueType queueType, Agent agent) {
+        for (Object[] row : workQueueRepository.findPendingSummariesByQueueType(queueType, PageRequest.of(0, databaseCandidates))) {
+            QueuedItem item = toQueuedItem(row);
+            QueuedItem local = queuedById.remove(item.getId());
+            if (local != null) {
+                queues.get(local.getQueueType()).remove(local);
+            }
+            ClaimResult result = claimRow(item, agent);
+            if (result == ClaimResult.CLAIMED) {
+                return Optional.of(item);
+            }
+            if (result == ClaimResult.AGENT_UNAVAILABLE) {
+                add(item);
+                return Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+
+    private ClaimResult claimRow(QueuedItem item, Agent agent) {
+        LocalDateTime now = LocalDateTime.now();
+        ClaimResult result = transactionTemplate.execute(status -> {
+            if (workQueueRepository.claim(item.getId(), agent, now) == 0) {
+                return ClaimResult.TAKEN;
+            }
+            if (agentRepository.takeCase(agent.getId(), now) == 0) {
+                // Releases the claim: the row goes back to PENDING
+                status.setRollbackOnly();
+                return ClaimResult.AGENT_UNAVAILABLE;
+            }
+            caseRepository.markAssigned(item.getCaseId(), agent, now);
+            return ClaimResult.CLAIMED;
+        });
+
+        switch (result) {
+            case TAKEN -> {
+                conflicts.incrementAndGet();
+                logger.debug("📥 Queue item {} was claimed elsewhere first", item.getId());
+            }
+            case AGENT_UNAVAILABLE -> {
+                agentUnavailable.incrementAndGet();
+                logger.debug("📥 Agent {} is at its case limit or not AVAILABLE; item {} left pending", agent.getId(), item.getId());
+                // The index thought the agent had room; take the stored count and status
+                agentRepository.findById(agent.getId()).ifPresent(agentAvailabilityIndex::update);
+            }
+            case CLAIMED -> {
+                claimed.incrementAndGet();
+                agentAvailabilityIndex.assigned(agent.getId());
+            }
+        }
+        return result;
+    }
+
+    public int size(WorkQueueType queueType) {
+        return queues.get(queueType).size();
+    }
+
+    public DispatcherMetrics getMetrics() {
+        return new DispatcherMetrics(depths(), claimed.get(), conflicts.get(), agentUnavailable.get());
+    }
+
+    private boolean add(QueuedItem entry) {
+        if (queuedById.putIfAbsent(entry.getId(), entry) != null) {
+            return false;
+        }
+        queues.get(entry.getQueueType()).add(entry);
+        return true;
+    }
+
+    private Map<WorkQueueType, Integer> depths() {
+        Map<WorkQueueType, Integer> depths = new LinkedHashMap<>();
+        for (Map.Entry<WorkQueueType, ConcurrentSkipListSet<QueuedItem>> queue : queues.entrySet()) {
+            depths.put(queue.getKey(), queue.getValue().size());
+        }
+        return depths;
+    }
+
+    private static QueuedItem toQueuedItem(Object[] row) {
+        return new QueuedItem((Long) row[0], (Long) row[1], (WorkQueueType) row[2],
+            row[3] != null ? (Integer) row[3] : 0, epochMillis((LocalDateTime) row[4]));
+    }
+
+    private static List<QueuedItem> snapshot(List<WorkQueue> items) {
+        List<QueuedItem> entries = new ArrayList<>(items.size());
+        for (WorkQueue item : items) {
+            if (item.getId() != null && item.getStatus() == WorkQueue.QueueStatus.PENDING) {
+                entries.add(new QueuedItem(item.getId(), item.getCaseItem().getId(), item.getQueueType(),
+                    item.getPriorityScore() != null ? item.getPriorityScore() : 0, epochMillis(item.getAddedToQueueTime())));
+            }
+        }
+        return entries;
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0;
+    }
+
+    /**
+     * Immutable snapshot of a pending item; a rescore replaces the entry rather than
+     * changing it, since the queue's ordering depends on it.
+     */
+    public static final class QueuedItem {
+        private final long id;
+        private final long caseId;
+        private final WorkQueueType queueType;
+        private final int priorityScore;
+        private final long queuedAt;
+
+        public QueuedItem(long id, long caseId, WorkQueueType queueType, int priorityScore, long queuedAt) {
+            this.id = id;
+            this.caseId = caseId;
+            this.queueType = queueType;
+            this.priorityScore = priorityScore;
+            this.queuedAt = queuedAt;
+        }
+
+        public long getId() { return id; }
+        public long getCaseId() { return caseId; }
+        public WorkQueueType getQueueType() { return queueType; }
+        public int getPriorityScore() { return priorityScore; }
+        public long getQueuedAt() { return queuedAt; }
+    }
+
+    private enum ClaimResult {
+        CLAIMED, TAKEN, AGENT_UNAVAILABLE
+    }
+
+    public static class DispatcherMetrics {
+        private final Map<WorkQueueType, Integer> queued;
+        private final long claimed;
+        private final long conflicts;
+        private final long agentUnavailable;
+
+        public DispatcherMetrics(Map<WorkQueueType, Integer> queued, long claimed, long conflicts, long agentUnavailable) {
+            this.queued = queued;
+            this.claimed = claimed;
+            this.conflicts = conflicts;
+            this.agentUnavailable = agentUnavailable;
+        }
+
+        public Map<WorkQueueType, Integer> getQueued() { return queued; }
+        public long getClaimed() { return claimed; }
+        public long getConflicts() { return conflicts; }
+        public long getAgentUnavailable() { return agentUnavailable; }
+    }
+}
@@ -0,0 +1,33 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.config.PriorityScoringProperties;
+import com.callcenter.emailmanagement.domain.model.WorkQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Points for each time the case was reopened: the customer has already been
+ * let down at least once.
+ */
+@Component
+public class ReopenPriorityFactor implements PriorityFactor {
+
+    @Autowired
+    private PriorityScoringProperties properties;
+
+    @Override
+    public String getName() {
+        return "reopen";
+    }
+
+    @Override
+    public int score(WorkQueue item, LocalDateTime now) {
+        Integer reopenCount = item.getCaseItem() != null ? item.getCaseItem().getReopenCount() : null;
+        if (reopenCount == null || reopenCount <= 0) {
+            return 0;
+        }
+        return Math.min(properties.getReopenMaxPoints(), reopenCount * properties.getReopenPoints());
+    }
+}
@@ -0,0 +1,616 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.Case;
+import com.callcenter.emailmanagement.domain.model.Email;
+import com.callcenter.emailmanagement.repository.CaseRepository;
+import com.callcenter.emailmanagement.repository.EmailRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded Lucene index over cases (subject, description, case number, customer)
+ * and their inbound emails (subject and body text). The index lives on local disk
+ * under {@code app.search.directory}; Lucene buffers new documents in memory,
+ * flushes them as segments and merges segments in the background under a tiered
+ * merge policy.
+ *
+ * Documents are written once the transaction that created or changed the case has
+ * committed, so a rolled-back batch never shows up in results. Searches go through
+ * a near-real-time reader refreshed every {@code refresh-interval-ms}; the index is
+ * committed to disk every {@code commit-interval-ms} and on shutdown. An index that
+ * does not match the database is rebuilt from it at startup.
+ *
+ * Only ids are stored in the index. Hits are resolved against the database, so
+ * status and queue in results are always current.
+ */
+@Service
+public class SearchIndexService {
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexService.class);
+
+    private static final String KEY = "key";
+    private static final String KIND = "kind";
+    private static final String CASE_ID = "caseId";
+    private static final String EMAIL_ID = "emailId";
+    private static final String SUBJECT = "subject";
+    private static final String TEXT = "text";
+    private static final String REFERENCE = "reference";
+    private static final String DATE = "date";
+
+    private static final String KIND_CASE = "case";
+    private static final String KIND_EMAIL = "email";
+
+    private static final Map<String, Float> FIELD_WEIGHTS = Map.of(SUBJECT, 2.0f, TEXT, 1.0f, REFERENCE, 1.5f);
+    private static final Set<String> STORED_FIELDS = Set.of(KIND, CASE_ID, EMAIL_ID);
+
+    // Latencies of the most recent searches, for the p99 in the metrics
+    private static final int LATENCY_SAMPLES = 1024;
+
+    @Autowired
+    private CaseRepository caseRepository;
+
+    @Autowired
+    private EmailRepository emailRepository;
+
+    @Autowired
+    private HtmlTextExtractor htmlTextExtractor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.search.directory:./data/search-index}")
+    private String indexDirectory;
+
+    @Value("${app.search.ram-buffer-mb:64}")
+    private double ramBufferMb;
+
+    @Value("${app.search.segments-per-tier:10}")
+    private double segmentsPerTier;
+
+    @Value("${app.search.max-merged-segment-mb:2048}")
+    private double maxMergedSegmentMb;
+
+    @Value("${app.search.max-body-chars:20000}")
+    private int maxBodyChars;
+
+    @Value("${app.search.max-page-size:100}")
+    private int maxPageSize;
+
+    @Value("${app.search.max-result-window:10000}")
+    private int maxResultWindow;
+
+    @Value("${app.search.rebuild-batch-size:500}")
+    private int rebuildBatchSize;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+
+    private FSDirectory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private TransactionTemplate readOnly;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicLong searches = new AtomicLong();
+    private final long[] latencyMicros = new long[LATENCY_SAMPLES];
+    private final AtomicInteger latencyCursor = new AtomicInteger();
+
+    @PostConstruct
+    public void initialize() throws IOException {
+        if (!enabled) {
+            logger.info("🔎 Search index disabled");
+            return;
+        }
+
+        Path path = Paths.get(indexDirectory).toAbsolutePath().normalize();
+        Files.createDirectories(path);
+        directory = FSDirectory.open(path);
+
+        TieredMergePolicy mergePolicy = new TieredMergePolicy();
+        mergePolicy.setSegmentsPerTier(segmentsPerTier);
+        mergePolicy.setMaxMergedSegmentMB(maxMergedSegmentMb);
+
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        config.setRAMBufferSizeMB(ramBufferMb);
+        config.setMergePolicy(mergePolicy);
+        config.setCommitOnClose(true);
+
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, null);
+
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        logger.info("🔎 Search index at {} ({} documents)", path, writer.getDocStats().numDocs);
+    }
+
+    /**
+     * Rebuilds the index when it does not hold one document per case, e.g. after
+     * the index directory was lost or the database was replaced.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfStale() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        long cases = caseRepository.count();
+        IndexSearcher searcher = searcherManager.acquire();
+        int indexedCases;
+        try {
+            indexedCases = searcher.count(new TermQuery(new Term(KIND, KIND_CASE)));
+        } finally {
+            searcherManager.release(searcher);
+        }
+
+        if (indexedCases != cases) {
+            logger.info("🔎 Search index holds {} cases, database {} - rebuilding", indexedCases, cases);
+            rebuild();
+        }
+    }
+
+    /**
+     * Indexes a case's own fields once the current transaction commits.
+     */
+    public void indexCase(Case caseEntity) {
+        if (enabled && caseEntity.getId() != null) {
+            Document document = caseDocument(caseEntity);
+            TransactionCallbacks.afterCommit(() -> write(document));
+        }
+    }
+
+    /**
+     * Indexes an inbound email of the given case once the current transaction
+     * commits. The body is read now, while the transaction can still load it.
+     */
+    public void indexEmail(Email email, Case caseEntity) {
+        if (enabled && email.getId() != null && caseEntity.getId() != null
+                && email.getDirection() != Email.EmailDirection.OUTBOUND) {
+            Document document = emailDocument(email, caseEntity.getId());
+            TransactionCallbacks.afterCommit(() -> write(document));
+        }
+    }
+
+    /**
+     * Drops the index and rebuilds it from the database on a background thread.
+     * Returns false if the index is disabled or a rebuild is already running.
+     */
+    public boolean rebuild() {
+        if (!enabled || !rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+
+        Thread.ofPlatform().name("search-rebuild").daemon().start(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                writer.deleteAll();
+                int cases = rebuildCases();
+                int emails = rebuildEmails();
+                writer.commit();
+                searcherManager.maybeRefresh();
+                logger.info("🔎 Search index rebuilt: {} cases, {} emails in {} ms", cases, emails,
+                    System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                logger.error("❌ Search index rebuild failed: {}", e.getMessage(), e);
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+        return true;
+    }
+
+    public SearchResults search(String queryText, String kind, boolean newestFirst, int page, int size) {
+        long start = System.nanoTime();
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+        // Deeper pages are clamped to the last one inside the result window, which
+        // also keeps (page + 1) * size from overflowing
+        int lastPage = Math.max(0, maxResultWindow / pageSize - 1);
+        int pageNumber = Math.max(0, Math.min(page, lastPage));
+
+        if (!enabled || queryText == null || queryText.isBlank()) {
+            return new SearchResults(queryText, 0, true, pageNumber, pageSize, 0, List.of());
+        }
+
+        Query query = parse(queryText, kind);
+        List<ScoredDocument> matches = new ArrayList<>(pageSize);
+        TotalHits totalHits;
+
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                int wanted = (pageNumber + 1) * pageSize;
+                TopDocs top = newestFirst
+                    ? searcher.search(query, wanted, new Sort(new SortField(DATE, SortField.Type.LONG, true)))
+                    : searcher.search(query, wanted);
+                totalHits = top.totalHits;
+
+                StoredFields storedFields = searcher.storedFields();
+                for (int i = pageNumber * pageSize; i < top.scoreDocs.length; i++) {
+                    ScoreDoc scoreDoc = top.scoreDocs[i];
+                    Document document = storedFields.document(scoreDoc.doc, STORED_FIELDS);
+                    Number emailId = document.getField(EMAIL_ID) != null ? document.getField(EMAIL_ID).numericValue() : null;
+                    matches.add(new ScoredDocument(document.get(KIND), document.getField(CASE_ID).numericValue().longValue(),
+                        emailId != null ? emailId.longValue() : null, Float.isNaN(scoreDoc.score) ? 0 : scoreDoc.score));
+                }
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Search index unreadable", e);
+        }
+
+        List<SearchHit> hits = resolve(matches);
+        long micros = (System.nanoTime() - start) / 1000;
+        latencyMicros[Math.floorMod(latencyCursor.getAndIncrement(), LATENCY_SAMPLES)] = micros;
+        searches.incrementAndGet();
+        logger.debug("🔎 '{}' matched {} documents in {} µs", queryText, totalHits.value, micros);
+
+        return new SearchResults(queryText, totalHits.value, totalHits.relation == TotalHits.Relation.EQUAL_TO,
+            pageNumber, pageSize, micros / 1000.0, hits);
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.refresh-interval-ms:1000}")
+    public void refresh() throws IOException {
+        if (enabled) {
+            searcherManager.maybeRefresh();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.commit-interval-ms:30000}")
+    public void commit() throws IOException {
+        if (enabled && writer.hasUncommittedChanges()) {
+            writer.commit();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (enabled) {
+            searcherManager.close();
+            writer.close();
+            directory.close();
+            logger.info("🔎 Search index closed");
+        }
+    }
+
+    public SearchMetrics getMetrics() {
+        if (!enabled) {
+            return new SearchMetrics(false, 0, 0, 0, false, 0, 0);
+        }
+
+        int samples = (int) Math.min(searches.get(), LATENCY_SAMPLES);
+        long[] recent = Arrays.copyOf(latencyMicros, samples);
+        Arrays.sort(recent);
+        double p99Millis = samples > 0 ? recent[(int) Math.ceil(samples * 0.99) - 1] / 1000.0 : 0;
+
+        return new SearchMetrics(true, writer.getDocStats().numDocs, segmentCount(), indexed.get(),
+            rebuilding.get(), searches.get(), p99Millis);
+    }
+
+    private Query parse(String queryText, String kind) {
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, FIELD_WEIGHTS);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query query = parser.parse(queryText);
+        if (query == null) {
+            // Nothing searchable left after analysis, e.g. only punctuation
+            return new MatchNoDocsQuery();
+        }
+
+        if (kind == null || kind.isBlank()) {
+            return query;
+        }
+        return new BooleanQuery.Builder()
+            .add(query, BooleanClause.Occur.MUST)
+            .add(new TermQuery(new Term(KIND, kind.toLowerCase(Locale.ROOT))), BooleanClause.Occur.FILTER)
+            .build();
+    }
+
+    /**
+     * Loads the cases behind a page of matches with one query. Matches whose case no
+     * longer exists are dropped.
+     */
+    private List<SearchHit> resolve(List<ScoredDocument> matches) {
+        Set<Long> caseIds = new LinkedHashSet<>();
+        for (ScoredDocument match : matches) {
+            caseIds.add(match.caseId);
+        }
+
+        Map<Long, Object[]> cases = new HashMap<>();
+        if (!caseIds.isEmpty()) {
+            for (Object[] summary : caseRepository.findSummariesByIds(caseIds)) {
+                cases.put((Long) summary[0], summary);
+            }
+        }
+
+        List<SearchHit> hits = new ArrayList<>(matches.size());
+        for (ScoredDocument match : matches) {
+            Object[] found = cases.get(match.caseId);
+            if (found != null) {
+                hits.add(new SearchHit(match.kind, (String) found[1], (String) found[2], (String) found[3],
+                    (Case.CaseStatus) found[4], found[5] != null ? found[5].toString() : null, match.emailId, match.score));
+            }
+        }
+        return hits;
+    }
+
+    private int rebuildCases() {
+        int count = 0;
+        long[] lastId = {0};
+        while (true) {
+            long afterId = lastId[0];
+            List<Document> documents = readOnly.execute(status -> {
+                List<Document> batch = new ArrayList<>();
+                for (Case caseEntity : caseRepository.findByIdGreaterThanOrderById(afterId, PageRequest.of(0, rebuildBatchSize))) {
+                    lastId[0] = caseEntity.getId();
+                    batch.add(caseDocument(caseEntity));
+                }
+                return batch;
+            });
+            if (lastId[0] == afterId) {
+                return count;
+            }
+            documents.forEach(this::write);
+            count += documents.size();
+        }
+    }
+
+    private int rebuildEmails() {
+        int count = 0;
+        long[] lastId = {0};
+        while (true) {
+            long afterId = lastId[0];
+            List<Document> documents = readOnly.execute(status -> {
+                List<Document> batch = new ArrayList<>();
+                for (Email email : emailRepository.findWithCaseAfter(afterId, PageRequest.of(0, rebuildBatchSize))) {
+                    lastId[0] = email.getId();
+                    if (email.getDirection() != Email.EmailDirection.OUTBOUND) {
+                        batch.add(emailDocument(email, email.getEmailCase().getId()));
+                    }
+                }
+                return batch;
+            });
+            if (lastId[0] == afterId) {
+                return count;
+            }
+            documents.forEach(this::write);
+            count += documents.size();
+        }
+    }
+
+    private Document caseDocument(Case caseEntity) {
+        Document document = new Document();
+        document.add(new StringField(KEY, KIND_CASE + ":" + caseEntity.getId(), Field.Store.NO));
+        document.add(new StringField(KIND, KIND_CASE, Field.Store.YES));
+        document.add(new StoredField(CASE_ID, caseEntity.getId()));
+        addText(document, SUBJECT, caseEntity.getSubject());
+        addText(document, TEXT, caseEntity.getDescription());
+        addText(document, REFERENCE, join(caseEntity.getCaseNumber(), caseEntity.getCustomerEmail(), caseEntity.getCustomerName()));
+        document.add(new NumericDocValuesField(DATE, epochMillis(caseEntity.getCreatedDate())));
+        return document;
+    }
+
+    private Document emailDocument(Email email, Long caseId) {
+        Document document = new Document();
+        document.add(new StringField(KEY, KIND_EMAIL + ":" + email.getId(), Field.Store.NO));
+        document.add(new StringField(KIND, KIND_EMAIL, Field.Store.YES));
+        document.add(new StoredField(CASE_ID, caseId));
+        document.add(new StoredField(EMAIL_ID, email.getId()));
+        addText(document, SUBJECT, email.getSubject());
+        addText(document, TEXT, bodyText(email));
+        addText(document, REFERENCE, email.getFromAddress());
+        document.add(new NumericDocValuesField(DATE, epochMillis(email.getReceivedDate())));
+        return document;
+    }
+
+    private String bodyText(Email email) {
+        String text = email.getTextContent();
+        if (text != null && !text.isBlank()) {
+            return text.length() > maxBodyChars ? text.substring(0, maxBodyChars) : text;
+        }
+        return email.getHtmlContent() != null ? htmlTextExtractor.extract(email.getHtmlContent(), maxBodyChars) : null;
+    }
+
+    private void write(Document document) {
+        try {
+            writer.updateDocument(new Term(KEY, document.get(KEY)), document);
+            indexed.incrementAndGet();
+        } catch (IOException e) {
+            logger.warn("🔎 Could not index {}: {}", document.get(KEY), e.getMessage());
+        }
+    }
+
+    private int segmentCount() {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                return searcher.getIndexReader().leaves().size();
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static void addText(Document document, String field, String value) {
+        if (value != null && !value.isBlank()) {
+            document.add(new TextField(field, value, Field.Store.NO));
+        }
+    }
+
+    private static String join(String... values) {
+        StringBuilder joined = new StringBuilder();
+        for (String value : values) {
+            if (value != null) {
+                joined.append(value).append(' ');
+            }
+        }
+        return joined.toString();
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return (time != null ? time : LocalDateTime.now()).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static final class ScoredDocument {
+        private final String kind;
+        private final long caseId;
+        private final Long emailId;
+        private final float score;
+
+        private ScoredDocument(String kind, long caseId, Long emailId, float score) {
+            this.kind = kind;
+            this.caseId = caseId;
+            this.emailId = emailId;
+            this.score = score;
+        }
+    }
+
+    public static class SearchHit {
+        private final String kind;
+        private final String caseNumber;
+        private final String subject;
+        private final String customerEmail;
+        private final Case.CaseStatus status;
+        private final String queueType;
+        private final Long emailId;
+        private final float score;
+
+        public SearchHit(String kind, String caseNumber, String subject, String customerEmail,
+                         Case.CaseStatus status, String queueType, Long emailId, float score) {
+            this.kind = kind;
+            this.caseNumber = caseNumber;
+            this.subject = subject;
+            this.customerEmail = customerEmail;
+            this.status = status;
+            this.queueType = queueType;
+            this.emailId = emailId;
+            this.score = score;
+        }
+
+        public String getKind() { return kind; }
+        public String getCaseNumber() { return caseNumber; }
+        public String getSubject() { return subject; }
+        public String getCustomerEmail() { return customerEmail; }
+        public Case.CaseStatus getStatus() { return status; }
+        public String getQueueType() { return queueType; }
+        public Long getEmailId() { return emailId; }
+        public float getScore() { return score; }
+    }
+
+    public static class SearchResults {
+        private final String query;
+        private final long total;
+        private final boolean totalExact;
+        private final int page;
+        private final int size;
+        private final double tookMs;
+        private final List<SearchHit> hits;
+
+        public SearchResults(String query, long total, boolean totalExact, int page, int size, double tookMs, List<SearchHit> hits) {
+            this.query = query;
+            this.total = total;
+            this.totalExact = totalExact;
+            this.page = page;
+            this.size = size;
+            this.tookMs = tookMs;
+            this.hits = hits;
+        }
+
+        public String getQuery() { return query; }
+        public long getTotal() { return total; }
+        public boolean isTotalExact() { return totalExact; }
+        public int getPage() { return page; }
+        public int getSize() { return size; }
+        public double getTookMs() { return tookMs; }
+        public List<SearchHit> getHits() { return hits; }
+    }
+
+    public static class SearchMetrics {
+        private final boolean enabled;
+        private final int documents;
+        private final int segments;
+        private final long indexed;
+        private final boolean rebuilding;
+        private final long searches;
+        private final double p99Millis;
+
+        public SearchMetrics(boolean enabled, int documents, int segments, long indexed,
+                             boolean rebuilding, long searches, double p99Millis) {
+            this.enabled = enabled;
+            this.documents = documents;
+            this.segments = segments;
+            this.indexed = indexed;
+            this.rebuilding = rebuilding;
+            this.searches = searches;
+            this.p99Millis = p99Millis;
+        }
+
+        public boolean isEnabled() { return enabled; }
+        public int getDocuments() { return documents; }
+        public int getSegments() { return segments; }
+        public long getIndexed() { return indexed; }
+        public boolean isRebuilding() { return rebuilding; }
+        public long getSearches() { return searches; }
+        public double getP99Millis() { return p99Millis; }
+    }
+}
@@ -10,6 +10,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +24,9 @@ public class SlaTrackingService {
     @Autowired
     private CaseRepository caseRepository;
     
+    @Autowired
+    private AgentNotificationHub agentNotificationHub;
+    
     public void initializeSlaTracking(Case caseEntity) {
         logger.info("Initializing SLA tracking for case: {}", caseEntity.getCaseNumber());
         
@@ -38,6 +42,19 @@ public class SlaTrackingService {
         logger.info("SLA tracking initialized successfully");
     }
     
+    public void initializeSlaTracking(List<Case> cases) {
+        List<SlaTracking> trackings = new ArrayList<>(cases.size());
+        
+        for (Case caseEntity : cases) {
+            SlaTracking slaTracking = new SlaTracking(caseEntity);
+            caseEntity.setSlaTracking(slaTracking);
+            trackings.add(slaTracking);
+        }
+        
+        slaTrackingRepository.saveAll(trackings);
+        logger.info("📊 SLA tracking initialized for {} cases - Target: 24h first response, 48h resolution", cases.size());
+    }
+    
     public void markFirstResponse(Case caseEntity) {
         logger.info("Marking first response for case: {}", caseEntity.getCaseNumber());
         
@@ -79,11 +96,16 @@ public class SlaTrackingService {
         
         SlaTracking slaTracking = caseEntity.getSlaTracking();
         if (slaTracking != null) {
+            SlaTracking.SlaStatus previousStatus = slaTracking.getSlaStatus();
             slaTracking.updateSlaStatus();
             
             // Persist changes
             slaTrackingRepository.save(slaTracking);
             
+            if (slaTracking.getSlaStatus() != previousStatus) {
+                warnAssignedAgent(caseEntity, slaTracking.getSlaStatus());
+            }
+            
             if (slaTracking.getSlaStatus() == SlaTracking.SlaStatus.BREACHED) {
                 handleSlaBreachNotification(caseEntity);
             }
@@ -150,6 +172,17 @@ public class SlaTrackingService {
         return caseRepository.findActiveCases();
     }
     
+    private void warnAssignedAgent(Case caseEntity, SlaTracking.SlaStatus status) {
+        if (caseEntity.getAssignedAgent() == null
+                || (status != SlaTracking.SlaStatus.APPROACHING_BREACH && status != SlaTracking.SlaStatus.BREACHED)) {
+            return;
+        }
+        
+        // getId() does not initialize the lazy agent reference
+        agentNotificationHub.slaWarning(caseEntity.getAssignedAgent().getId(), caseEntity.getId(),
+            caseEntity.getCaseNumber(), status);
+    }
+    
     private void handleSlaBreachNotification(Case caseEntity) {
         logger.warn("SLA breach detected for case: {}", caseEntity.getCaseNumber());
         
@@ -0,0 +1,86 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.config.PriorityScoringProperties;
+import com.callcenter.emailmanagement.domain.model.Case;
+import com.callcenter.emailmanagement.domain.model.SlaTracking;
+import com.callcenter.emailmanagement.domain.model.WorkQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Points that ramp up in steps over the last {@code sla-warning-minutes} before
+ * the first-response deadline and stay at the maximum once it has passed.
+ */
+@Component
+public class SlaUrgencyPriorityFactor implements PriorityFactor {
+
+    private static final int DEFAULT_FIRST_RESPONSE_MINUTES = 24 * 60;
+
+    @Autowired
+    private PriorityScoringProperties properties;
+
+    @Override
+    public String getName() {
+        return "sla";
+    }
+
+    @Override
+    public int score(WorkQueue item, LocalDateTime now) {
+        LocalDateTime deadline = firstResponseDeadline(item.getCaseItem());
+        if (deadline == null) {
+            return 0;
+        }
+
+        long remaining = ChronoUnit.MINUTES.between(now, deadline);
+        int warning = properties.getSlaWarningMinutes();
+        if (remaining >= warning) {
+            return 0;
+        }
+        if (remaining <= 0 || warning <= 0) {
+            return properties.getSlaMaxPoints();
+        }
+
+        long elapsedSteps = (warning - remaining) / step();
+        return (int) (properties.getSlaMaxPoints() * elapsedSteps * step() / warning);
+    }
+
+    @Override
+    public LocalDateTime nextChange(WorkQueue item, LocalDateTime now) {
+        LocalDateTime deadline = firstResponseDeadline(item.getCaseItem());
+        if (deadline == null || !now.isBefore(deadline)) {
+            return null;
+        }
+
+        LocalDateTime warningStart = deadline.minusMinutes(properties.getSlaWarningMinutes());
+        if (now.isBefore(warningStart)) {
+            return warningStart;
+        }
+
+        long elapsedSteps = ChronoUnit.MINUTES.between(warningStart, now) / step();
+        LocalDateTime nextStep = warningStart.plusMinutes((elapsedSteps + 1) * step());
+        return nextStep.isBefore(deadline) ? nextStep : deadline;
+    }
+
+    private LocalDateTime firstResponseDeadline(Case caseItem) {
+        if (caseItem == null || caseItem.getCreatedDate() == null) {
+            return null;
+        }
+
+        SlaTracking sla = caseItem.getSlaTracking();
+        if (sla != null && sla.getFirstResponseTime() != null) {
+            return null;
+        }
+
+        int targetMinutes = sla != null && sla.getSlaTarget24Hours() != null
+            ? sla.getSlaTarget24Hours()
+            : DEFAULT_FIRST_RESPONSE_MINUTES;
+        return caseItem.getCreatedDate().plusMinutes(targetMinutes);
+    }
+
+    private int step() {
+        return Math.max(1, properties.getSlaStepMinutes());
+    }
+}
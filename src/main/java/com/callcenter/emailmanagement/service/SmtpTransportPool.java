@@ -0,0 +1,234 @@
+package com.callcenter.emailmanagement.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of authenticated SMTP connections built from the {@code spring.mail}
+ * settings. Borrowed transports are checked with a NOOP if they have been idle
+ * for a while, idle ones are evicted in the background, and a batch of messages
+ * can be sent over a single connection.
+ */
+@Component
+public class SmtpTransportPool {
+    private static final Logger logger = LoggerFactory.getLogger(SmtpTransportPool.class);
+
+    @Autowired
+    private MailProperties mailProperties;
+
+    @Value("${app.email.smtp.pool.max-size:4}")
+    private int maxSize;
+
+    @Value("${app.email.smtp.pool.idle-timeout-ms:60000}")
+    private long idleTimeoutMs;
+
+    @Value("${app.email.smtp.pool.validate-after-idle-ms:5000}")
+    private long validateAfterIdleMs;
+
+    @Value("${app.email.smtp.pool.borrow-timeout-ms:30000}")
+    private long borrowTimeoutMs;
+
+    private Session session;
+    private Semaphore permits;
+    private final LinkedBlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+
+    @PostConstruct
+    public void initialize() {
+        Properties props = new Properties();
+        props.put("mail.transport.protocol", mailProperties.getProtocol());
+        props.put("mail.smtp.host", mailProperties.getHost());
+        if (mailProperties.getPort() != null) {
+            props.put("mail.smtp.port", String.valueOf(mailProperties.getPort()));
+        }
+        props.put("mail.smtp.connectiontimeout", "30000");
+        props.put("mail.smtp.timeout", "60000");
+        props.putAll(mailProperties.getProperties());
+
+        session = Session.getInstance(props);
+        permits = new Semaphore(maxSize, true);
+
+        logger.info("📮 SMTP pool configured for {}:{} (max {} connections)",
+            mailProperties.getHost(), mailProperties.getPort(), maxSize);
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public void send(MimeMessage message) throws MessagingException {
+        List<MessagingException> failures = sendAll(List.of(message));
+        if (failures.get(0) != null) {
+            throw failures.get(0);
+        }
+    }
+
+    /**
+     * Sends the messages in order over one pooled connection. Returns one entry per
+     * message: {@code null} when it was accepted, otherwise the failure. A message
+     * that fails because the connection dropped is retried once on a fresh one.
+     */
+    public List<MessagingException> sendAll(List<MimeMessage> messages) throws MessagingException {
+        List<MessagingException> results = new ArrayList<>(messages.size());
+        PooledTransport pooled = borrow();
+        long startNanos = System.nanoTime();
+
+        try {
+            for (MimeMessage message : messages) {
+                try {
+                    message.saveChanges();
+                    sendWithReconnect(pooled, message);
+                    results.add(null);
+                } catch (MessagingException e) {
+                    results.add(e);
+                } catch (IllegalStateException e) {
+                    // The reconnect itself failed and the transport is closed
+                    results.add(new MessagingException("SMTP connection unavailable", e));
+                } catch (RuntimeException e) {
+                    // Recorded against this message so the ones already sent are not sent again
+                    results.add(new MessagingException(e.getMessage(), e));
+                }
+            }
+        } finally {
+            release(pooled);
+        }
+
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        logger.debug("📮 Sent {} messages over one SMTP connection in {} ms", messages.size(), elapsedMillis);
+        return results;
+    }
+
+    private void sendWithReconnect(PooledTransport pooled, MimeMessage message) throws MessagingException {
+        try {
+            pooled.transport.sendMessage(message, message.getAllRecipients());
+        } catch (MessagingException e) {
+            if (pooled.transport.isConnected()) {
+                throw e;
+            }
+            logger.warn("📮 SMTP connection dropped mid-batch, reconnecting: {}", e.getMessage());
+            closeQuietly(pooled);
+            pooled.transport = openTransport();
+            pooled.transport.sendMessage(message, message.getAllRecipients());
+        }
+    }
+
+    private PooledTransport borrow() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("Timed out waiting for an SMTP connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted waiting for an SMTP connection", e);
+        }
+
+        try {
+            PooledTransport pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isHealthy(pooled)) {
+                    return pooled;
+                }
+                closeQuietly(pooled);
+            }
+            return connect();
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(PooledTransport pooled) {
+        if (pooled.transport.isConnected()) {
+            pooled.lastUsedMillis = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } else {
+            closeQuietly(pooled);
+        }
+        permits.release();
+    }
+
+    private boolean isHealthy(PooledTransport pooled) {
+        long idleMillis = System.currentTimeMillis() - pooled.lastUsedMillis;
+        if (idleMillis < validateAfterIdleMs) {
+            return true;
+        }
+        // SMTPTransport.isConnected() issues a NOOP to verify the server is still there
+        return pooled.transport.isConnected();
+    }
+
+    private PooledTransport connect() throws MessagingException {
+        return new PooledTransport(openTransport());
+    }
+
+    private Transport openTransport() throws MessagingException {
+        Transport transport = session.getTransport();
+        transport.connect(mailProperties.getHost(),
+            mailProperties.getPort() != null ? mailProperties.getPort() : -1,
+            mailProperties.getUsername(), mailProperties.getPassword());
+        logger.info("📮 Opened SMTP connection to {}", mailProperties.getHost());
+        return transport;
+    }
+
+    @Scheduled(fixedDelayString = "${app.email.smtp.pool.eviction-interval-ms:30000}")
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+        Iterator<PooledTransport> iterator = idle.descendingIterator();
+        int evicted = 0;
+
+        while (iterator.hasNext()) {
+            PooledTransport pooled = iterator.next();
+            if (pooled.lastUsedMillis < cutoff && idle.removeFirstOccurrence(pooled)) {
+                closeQuietly(pooled);
+                evicted++;
+            }
+        }
+
+        if (evicted > 0) {
+            logger.debug("📮 Evicted {} idle SMTP connections", evicted);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeQuietly(pooled);
+        }
+    }
+
+    private void closeQuietly(PooledTransport pooled) {
+        try {
+            pooled.transport.close();
+        } catch (Exception e) {
+            logger.debug("Ignoring error closing SMTP connection: {}", e.getMessage());
+        }
+    }
+
+    private static class PooledTransport {
+        private Transport transport;
+        private volatile long lastUsedMillis;
+
+        PooledTransport(Transport transport) {
+            this.transport = transport;
+            this.lastUsedMillis = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.config.PriorityScoringProperties;
+import com.callcenter.emailmanagement.domain.model.WorkQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Points for every full hour an item has waited, so old NORMAL cases eventually
+ * overtake fresh HIGH ones.
+ */
+@Component
+public class WaitingTimePriorityFactor implements PriorityFactor {
+
+    @Autowired
+    private PriorityScoringProperties properties;
+
+    @Override
+    public String getName() {
+        return "waiting";
+    }
+
+    @Override
+    public int score(WorkQueue item, LocalDateTime now) {
+        long hours = ChronoUnit.HOURS.between(item.getAddedToQueueTime(), now);
+        return (int) Math.min(properties.getWaitingMaxPoints(), Math.max(0, hours) * properties.getWaitingPointsPerHour());
+    }
+
+    @Override
+    public LocalDateTime nextChange(WorkQueue item, LocalDateTime now) {
+        if (properties.getWaitingPointsPerHour() <= 0 || score(item, now) >= properties.getWaitingMaxPoints()) {
+            return null;
+        }
+        long hours = Math.max(0, ChronoUnit.HOURS.between(item.getAddedToQueueTime(), now));
+        return item.getAddedToQueueTime().plusHours(hours + 1);
+    }
+}
@@ -8,7 +8,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -22,23 +25,73 @@ public class WorkQueueService {
     @Autowired
     private AgentRepository agentRepository;
     
+    @Autowired
+    private PriorityScoringEngine priorityScoringEngine;
+    
+    @Autowired
+    private QueueDispatcher queueDispatcher;
+    
+    @Autowired
+    private CaseRepository caseRepository;
+    
+    @Autowired
+    private AgentAvailabilityIndex agentAvailabilityIndex;
+    
+    @Autowired
+    private AssignmentDispatcher assignmentDispatcher;
+    
+    @Autowired
+    private AgentNotificationHub agentNotificationHub;
+    
     public void addCaseToQueue(Case caseEntity) {
         logger.info("Adding case {} to work queue: {}", caseEntity.getCaseNumber(), caseEntity.getQueueType());
         
         WorkQueue queueItem = new WorkQueue(caseEntity, caseEntity.getQueueType());
+        priorityScoringEngine.score(queueItem);
         
         // Persist to database
         workQueueRepository.save(queueItem);
+        queueDispatcher.enqueue(List.of(queueItem));
         
         logger.info("🎯 Case {} added to {} queue with priority {}", 
             caseEntity.getCaseNumber(), caseEntity.getQueueType(), queueItem.getPriorityScore());
         
         // Notify available agents
-        notifyAvailableAgents(caseEntity.getQueueType());
+        notifyAvailableAgents(caseEntity.getQueueType(), 1);
         
         logger.info("✅ Case added to queue successfully");
     }
     
+    /**
+     * Queues a batch of new cases with one batched insert and a single agent
+     * notification per queue type.
+     */
+    public void addCasesToQueue(List<Case> cases) {
+        List<WorkQueue> queueItems = new ArrayList<>(cases.size());
+        Map<WorkQueueType, Integer> queueTypes = new EnumMap<>(WorkQueueType.class);
+        
+        for (Case caseEntity : cases) {
+            WorkQueue queueItem = new WorkQueue(caseEntity, caseEntity.getQueueType());
+            priorityScoringEngine.score(queueItem);
+            queueItems.add(queueItem);
+            queueTypes.merge(caseEntity.getQueueType(), 1, Integer::sum);
+        }
+        
+        workQueueRepository.saveAll(queueItems);
+        queueDispatcher.enqueue(queueItems);
+        
+        for (WorkQueue queueItem : queueItems) {
+            logger.debug("🎯 Case {} added to {} queue with priority {}", 
+                queueItem.getCaseItem().getCaseNumber(), queueItem.getQueueType(), queueItem.getPriorityScore());
+        }
+        
+        for (Map.Entry<WorkQueueType, Integer> queued : queueTypes.entrySet()) {
+            notifyAvailableAgents(queued.getKey(), queued.getValue());
+        }
+        
+        logger.info("✅ {} cases added to {} queues", cases.size(), queueTypes.size());
+    }
+    
     public Optional<Case> getNextCaseForAgent(Agent agent, WorkQueueType queueType) {
         logger.info("Getting next case for agent {} from queue {}", agent.getAgentId(), queueType);
         
@@ -47,26 +100,23 @@ public class WorkQueueService {
             return Optional.empty();
         }
         
-        if (!agent.getSkillSets().contains(queueType)) {
+        if (!agent.hasSkill(queueType)) {
             logger.warn("Agent {} does not have skills for queue type {}", agent.getAgentId(), queueType);
             return Optional.empty();
         }
         
-        // Find next case from queue
-        Optional<WorkQueue> nextQueueItem = workQueueRepository.findNextPendingByQueueType(queueType.name());
-        
-        if (nextQueueItem.isPresent()) {
-            Case nextCase = nextQueueItem.get().getCaseItem();
-            assignCaseToAgent(nextCase, agent);
-            
-            // Update queue item status
-            WorkQueue queueItem = nextQueueItem.get();
-            queueItem.setStatus(WorkQueue.QueueStatus.ASSIGNED);
-            queueItem.setAssignedAgent(agent);
-            workQueueRepository.save(queueItem);
-            
-            logger.info("🎯 Assigned case {} to agent {}", nextCase.getCaseNumber(), agent.getAgentId());
-            return Optional.of(nextCase);
+        // Claims the row and writes the case assignment and agent count in one transaction
+        Optional<QueueDispatcher.QueuedItem> claimed = queueDispatcher.claim(queueType, agent);
+        
+        if (claimed.isPresent()) {
+            Optional<Case> nextCase = caseRepository.findById(claimed.get().getCaseId());
+            if (nextCase.isPresent()) {
+                assignCaseToAgent(nextCase.get(), agent);
+                
+                logger.info("🎯 Assigned case {} to agent {}", nextCase.get().getCaseNumber(), agent.getAgentId());
+                return nextCase;
+            }
+            logger.warn("⚠️ Claimed queue item {} refers to missing case {}", claimed.get().getId(), claimed.get().getCaseId());
         }
         
         logger.info("📭 No cases available in queue {} for agent {}", queueType, agent.getAgentId());
@@ -79,10 +129,10 @@ public class WorkQueueService {
         return workQueueRepository.findPendingByQueueTypeOrderedByPriority(queueType);
     }
     
-    public List<Agent> getAvailableAgents(WorkQueueType queueType) {
+    public List<AgentAvailabilityIndex.AgentSlot> getAvailableAgents(WorkQueueType queueType) {
         logger.debug("Finding available agents for queue type: {}", queueType);
         
-        return agentRepository.findAvailableAgentsBySkill(queueType);
+        return agentAvailabilityIndex.availableAgents(queueType);
     }
     
     public void updateQueueItemStatus(WorkQueue queueItem, WorkQueue.QueueStatus status) {
@@ -117,13 +167,11 @@ public class WorkQueueService {
         caseEntity.setAssignedAgent(agent);
         caseEntity.setStatus(Case.CaseStatus.ASSIGNED);
         
-        // Update agent status and case count
+        // Mirror what the claim wrote on the entities already loaded in this request
         agent.setCurrentCaseCount(agent.getCurrentCaseCount() + 1);
         agent.setLastActiveTime(LocalDateTime.now());
         
-        // TODO: Update work queue item status
         // TODO: Send notification to agent
-        // TODO: Persist changes
         
         logger.info("Case assigned successfully");
     }
@@ -138,24 +186,26 @@ public class WorkQueueService {
         return Optional.empty();
     }
     
-    private void notifyAvailableAgents(WorkQueueType queueType) {
+    private void notifyAvailableAgents(WorkQueueType queueType, int count) {
         logger.info("Notifying available agents for queue type: {}", queueType);
         
-        List<Agent> availableAgents = getAvailableAgents(queueType);
+        // Push the new cases to agents with spare capacity
+        assignmentDispatcher.queueChanged(queueType);
+        
+        List<AgentAvailabilityIndex.AgentSlot> availableAgents = getAvailableAgents(queueType);
         
-        for (Agent agent : availableAgents) {
-            sendNotificationToAgent(agent, queueType);
+        for (AgentAvailabilityIndex.AgentSlot agent : availableAgents) {
+            sendNotificationToAgent(agent, queueType, count);
         }
         
         logger.info("Notifications sent to {} agents", availableAgents.size());
     }
     
-    private void sendNotificationToAgent(Agent agent, WorkQueueType queueType) {
+    private void sendNotificationToAgent(AgentAvailabilityIndex.AgentSlot agent, WorkQueueType queueType, int count) {
         logger.debug("Sending notification to agent {} for queue {}", agent.getAgentId(), queueType);
         
-        // TODO: Implement actual notification mechanism
-        // TODO: Consider WebSocket, push notifications, or email
-        // TODO: Include queue metrics and priority information
+        // Pushed over the agent's event streams once the cases are committed
+        agentNotificationHub.newCases(agent.getId(), queueType, count);
         
         logger.debug("Notification sent to agent: {}", agent.getAgentId());
     }
@@ -0,0 +1,69 @@
+package com.callcenter.emailmanagement.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares one automaton pass over an email body with lowercasing the body and
+ * calling {@code contains} once per keyword, as routing did before. Not part of
+ * the test run; start it with {@code mvn test-compile exec:exec -Dexec.executable=java
+ * -Dexec.classpathScope=test "-Dexec.args=-cp %classpath org.openjdk.jmh.Main KeywordAutomatonBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeywordAutomatonBenchmark {
+    private static final List<String> KEYWORDS = List.of("bill", "bills", "billed", "billing", "payment",
+        "payments", "invoice", "invoices", "refund", "refunds", "refunded", "charged", "overcharged",
+        "password", "login");
+    private static final String[] WORDS = {"hello", "my", "account", "was", "charged", "twice", "for", "the",
+        "order", "please", "help", "thanks", "regards", "shipping", "delivery", "Monday", "support", "team"};
+
+    @Param({"1024", "16384"})
+    private int bodyLength;
+
+    private String body;
+    private KeywordAutomaton automaton;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        StringBuilder text = new StringBuilder(bodyLength + 16);
+        while (text.length() < bodyLength) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(12) == 0 ? ". " : " ");
+        }
+        body = text.substring(0, bodyLength);
+        automaton = new KeywordAutomaton(KEYWORDS);
+    }
+
+    @Benchmark
+    public void automaton(Blackhole blackhole) {
+        automaton.scan(body, blackhole::consume);
+    }
+
+    @Benchmark
+    public void lowercaseContains(Blackhole blackhole) {
+        String lowered = body.toLowerCase(Locale.ROOT);
+        for (String keyword : KEYWORDS) {
+            blackhole.consume(lowered.contains(keyword));
+        }
+    }
+}
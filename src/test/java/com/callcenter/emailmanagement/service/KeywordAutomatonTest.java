@@ -0,0 +1,82 @@
+package com.callcenter.emailmanagement.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the automaton against a naive scan that tries every keyword at every
+ * position, on random text drawn from a small alphabet so keywords overlap,
+ * nest and run into neighbouring letters often.
+ */
+class KeywordAutomatonTest {
+    private static final String ALPHABET = "abcAB -.1é";
+    private static final int ROUNDS = 2000;
+
+    @Test
+    void matchesNaiveWholeWordCounting() {
+        Random random = new Random(42);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            List<String> keywords = new ArrayList<>();
+            int keywordCount = 1 + random.nextInt(8);
+            for (int k = 0; k < keywordCount; k++) {
+                keywords.add(randomText(random, 1 + random.nextInt(4)).toLowerCase());
+            }
+            String text = randomText(random, random.nextInt(200));
+
+            KeywordAutomaton automaton = new KeywordAutomaton(keywords);
+            int[] counts = new int[keywords.size()];
+            automaton.scan(text, keyword -> counts[keyword]++);
+
+            for (int k = 0; k < keywords.size(); k++) {
+                assertEquals(naiveCount(text, keywords.get(k)), counts[k],
+                    "keyword '" + keywords.get(k) + "' in '" + text + "'");
+            }
+        }
+    }
+
+    @Test
+    void ignoresKeywordsInsideLongerWords() {
+        KeywordAutomaton automaton = new KeywordAutomaton(List.of("charge", "bill", "refund"));
+        int[] counts = new int[3];
+
+        automaton.scan("Discharge summary, a surcharge of 2 billion, no REFUNDS", keyword -> counts[keyword]++);
+        assertEquals(0, counts[0] + counts[1] + counts[2]);
+
+        automaton.scan("Charge: my bill (refund!) and bill-2", keyword -> counts[keyword]++);
+        assertEquals(1, counts[0]);
+        assertEquals(2, counts[1]);
+        assertEquals(1, counts[2]);
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return text.toString();
+    }
+
+    private static int naiveCount(String text, String keyword) {
+        int count = 0;
+        for (int start = 0; start + keyword.length() <= text.length(); start++) {
+            int end = start + keyword.length();
+            if (!text.substring(start, end).toLowerCase().equals(keyword)) {
+                continue;
+            }
+            boolean joinedBefore = start > 0 && Character.isLetterOrDigit(text.charAt(start - 1))
+                && Character.isLetterOrDigit(keyword.charAt(0));
+            boolean joinedAfter = end < text.length() && Character.isLetterOrDigit(text.charAt(end))
+                && Character.isLetterOrDigit(keyword.charAt(keyword.length() - 1));
+            if (!joinedBefore && !joinedAfter) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
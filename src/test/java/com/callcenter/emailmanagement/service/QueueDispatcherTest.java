@@ -0,0 +1,180 @@
+package com.callcenter.emailmanagement.service;
+
+import com.callcenter.emailmanagement.domain.model.Agent;
+import com.callcenter.emailmanagement.domain.model.Case;
+import com.callcenter.emailmanagement.domain.model.WorkQueue;
+import com.callcenter.emailmanagement.domain.model.WorkQueueType;
+import com.callcenter.emailmanagement.repository.AgentRepository;
+import com.callcenter.emailmanagement.repository.CaseRepository;
+import com.callcenter.emailmanagement.repository.WorkQueueRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drains one queue with parallel claimers against H2. Half of them claim straight
+ * from the database, like a second node that never saw the items, so both claim
+ * paths compete for the same rows and the same agents' case limits.
+ */
+@DataJpaTest(showSql = false)
+@Import({QueueDispatcher.class, AgentAvailabilityIndex.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class QueueDispatcherTest {
+    private static final WorkQueueType QUEUE = WorkQueueType.GENERAL_INQUIRY;
+    private static final int ITEMS = 300;
+    private static final int AGENTS = 4;
+    private static final int CLAIMERS = 16;
+
+    @Autowired
+    private QueueDispatcher queueDispatcher;
+
+    @Autowired
+    private AgentAvailabilityIndex agentAvailabilityIndex;
+
+    @Autowired
+    private WorkQueueRepository workQueueRepository;
+
+    @Autowired
+    private CaseRepository caseRepository;
+
+    @Autowired
+    private AgentRepository agentRepository;
+
+    private final List<Agent> agents = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        workQueueRepository.deleteAll();
+        caseRepository.deleteAll();
+        agentRepository.deleteAll();
+
+        for (int i = 0; i < AGENTS; i++) {
+            Agent agent = new Agent("TEST" + i, "Test Agent " + i, "test" + i + "@company.com");
+            agent.setStatus(Agent.AgentStatus.AVAILABLE);
+            agent.setSkillSets(List.of(QUEUE));
+            agent.setMaxConcurrentCases(ITEMS);
+            agents.add(agentRepository.save(agent));
+        }
+        for (int i = 0; i < ITEMS; i++) {
+            Case caseEntity = new Case("CASE-TEST-" + i, "customer" + i + "@test.com", "Question " + i);
+            caseEntity.setQueueType(QUEUE);
+            workQueueRepository.save(new WorkQueue(caseRepository.save(caseEntity), QUEUE));
+        }
+
+        queueDispatcher.resync();
+        agentAvailabilityIndex.refresh();
+    }
+
+    @Test
+    void parallelClaimersNeverAssignACaseTwice() throws InterruptedException {
+        Map<Long, Long> ownerByCase = new ConcurrentHashMap<>();
+        int duplicates = drain(ownerByCase);
+
+        assertEquals(0, duplicates, "cases handed out twice");
+        assertEquals(ITEMS, ownerByCase.size(), "cases claimed");
+        assertEquals(0, workQueueRepository.findPendingSummaries().size(), "items left pending");
+
+        // The case and the agent count were written with each claim
+        for (Case caseEntity : caseRepository.findAll()) {
+            assertEquals(Case.CaseStatus.ASSIGNED, caseEntity.getStatus(), caseEntity.getCaseNumber());
+            assertNotNull(caseEntity.getAssignedAgent(), caseEntity.getCaseNumber());
+            assertEquals(ownerByCase.get(caseEntity.getId()), caseEntity.getAssignedAgent().getId(), caseEntity.getCaseNumber());
+        }
+        int total = 0;
+        for (Agent agent : agentRepository.findAll()) {
+            long owned = ownerByCase.values().stream().filter(agent.getId()::equals).count();
+            assertEquals(owned, agent.getCurrentCaseCount().longValue(), agent.getAgentId());
+            total += agent.getCurrentCaseCount();
+        }
+        assertEquals(ITEMS, total, "agent case counts");
+    }
+
+    @Test
+    void claimsStopAtTheAgentsCaseLimit() throws InterruptedException {
+        int limit = 5;
+        for (Agent agent : agentRepository.findAll()) {
+            agent.setMaxConcurrentCases(limit);
+            agentRepository.save(agent);
+        }
+
+        Map<Long, Long> ownerByCase = new ConcurrentHashMap<>();
+        int duplicates = drain(ownerByCase);
+
+        assertEquals(0, duplicates, "cases handed out twice");
+        assertEquals(AGENTS * limit, ownerByCase.size(), "cases claimed");
+        assertEquals(ITEMS - AGENTS * limit, workQueueRepository.findPendingSummaries().size(), "items left pending");
+        for (Agent agent : agentRepository.findAll()) {
+            assertEquals(limit, agent.getCurrentCaseCount(), agent.getAgentId());
+        }
+        for (Case caseEntity : caseRepository.findAll()) {
+            boolean claimed = ownerByCase.containsKey(caseEntity.getId());
+            assertEquals(claimed ? Case.CaseStatus.ASSIGNED : Case.CaseStatus.NEW, caseEntity.getStatus(), caseEntity.getCaseNumber());
+        }
+    }
+
+    @Test
+    void claimsSkipAgentsWhoAreNotAvailable() {
+        // The index still lists the agent as AVAILABLE, as it would until the next refresh
+        Agent onBreak = agents.get(0);
+        agentRepository.updateStatus(onBreak.getId(), Agent.AgentStatus.BREAK, LocalDateTime.now());
+
+        assertTrue(queueDispatcher.claim(QUEUE, onBreak).isEmpty(), "claim from this node's queue");
+        assertTrue(queueDispatcher.claimFromDatabase(QUEUE, onBreak).isEmpty(), "claim from the database");
+
+        assertEquals(ITEMS, workQueueRepository.findPendingSummaries().size(), "items left pending");
+        assertEquals(0, agentRepository.findById(onBreak.getId()).orElseThrow().getCurrentCaseCount());
+        assertTrue(queueDispatcher.claim(QUEUE, agents.get(1)).isPresent(), "claim for an available agent");
+    }
+
+    /**
+     * Runs {@code CLAIMERS} threads, spread over the agents, until each gets
+     * nothing back. Returns how many cases were handed out more than once.
+     */
+    private int drain(Map<Long, Long> ownerByCase) throws InterruptedException {
+        AtomicInteger duplicates = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < CLAIMERS; i++) {
+            Agent agent = agents.get(i % AGENTS);
+            boolean fromDatabase = i % 2 == 0;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                Optional<QueueDispatcher.QueuedItem> item;
+                while ((item = fromDatabase
+                        ? queueDispatcher.claimFromDatabase(QUEUE, agent)
+                        : queueDispatcher.claim(QUEUE, agent)).isPresent()) {
+                    if (ownerByCase.putIfAbsent(item.get().getCaseId(), agent.getId()) != null) {
+                        duplicates.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return duplicates.get();
+    }
+}